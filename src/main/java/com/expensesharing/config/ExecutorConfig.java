@@ -0,0 +1,45 @@
+package com.expensesharing.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class ExecutorConfig {
+
+    /**
+     * Fans out per-group balance loads. Bounded so a user with many groups cannot
+     * exhaust the connection pool; when saturated the caller runs the load itself.
+     */
+    @Bean
+    public Executor balanceExecutor(@Value("${balance.fanout.threads:4}") int threads,
+                                    @Value("${balance.fanout.queue-capacity:256}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("balance-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        return executor;
+    }
+
+    /**
+     * Runs BCrypt hashing for register and login off the request threads. Both the pool and its
+     * queue are small and fixed: a login storm is rejected (503) instead of pinning every CPU.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor passwordHashExecutor(@Value("${auth.password.threads:2}") int threads,
+                                                       @Value("${auth.password.queue-capacity:64}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("password-hash-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        return executor;
+    }
+}
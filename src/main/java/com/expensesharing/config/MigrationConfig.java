@@ -0,0 +1,55 @@
+package com.expensesharing.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.api.MigrationInfo;
+import org.flywaydb.core.api.MigrationState;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+@Slf4j
+@Configuration
+public class MigrationConfig {
+
+    private static final Set<MigrationState> IN_SYNC =
+            EnumSet.of(MigrationState.SUCCESS, MigrationState.BASELINE, MigrationState.BELOW_BASELINE);
+
+    /**
+     * Migrates, then refuses to start unless the database matches this build's migrations exactly.
+     * Edited migrations already fail validate-on-migrate; this also rejects failed migrations, ones
+     * applied by a build we don't know (newer or diverged) and indexes left INVALID by an interrupted
+     * CONCURRENTLY build. Table and column drift is caught next by ddl-auto: validate.
+     */
+    @Bean
+    public FlywayMigrationStrategy verifyingMigrationStrategy() {
+        return flyway -> {
+            flyway.migrate();
+
+            List<String> drifted = Arrays.stream(flyway.info().all())
+                    .filter(migration -> !IN_SYNC.contains(migration.getState()))
+                    .map(MigrationConfig::describe)
+                    .toList();
+            if (!drifted.isEmpty()) {
+                throw new IllegalStateException("Database schema has drifted from the migrations: " + drifted);
+            }
+
+            List<String> invalidIndexes = new JdbcTemplate(flyway.getConfiguration().getDataSource()).queryForList(
+                    "SELECT indexrelid::regclass::text FROM pg_index WHERE NOT indisvalid", String.class);
+            if (!invalidIndexes.isEmpty()) {
+                throw new IllegalStateException(
+                        "Invalid indexes left by an interrupted concurrent build, drop and recreate them: " + invalidIndexes);
+            }
+            log.info("Database schema is at version {}", flyway.info().current().getVersion());
+        };
+    }
+
+    private static String describe(MigrationInfo migration) {
+        return migration.getVersion() + " " + migration.getDescription() + " (" + migration.getState().getDisplayName() + ")";
+    }
+}
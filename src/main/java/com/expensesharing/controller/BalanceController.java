@@ -1,6 +1,7 @@
 package com.expensesharing.controller;
 
 import com.expensesharing.dto.response.BalanceResponse;
+import com.expensesharing.dto.response.NettedBalanceResponse;
 import com.expensesharing.dto.response.SimplifiedBalanceResponse;
 import com.expensesharing.service.BalanceService;
 import lombok.RequiredArgsConstructor;
@@ -21,9 +22,21 @@ public class BalanceController {
         return ResponseEntity.ok(balances);
     }
 
-    @GetMapping("/groups/{groupId}/balances")
-    public ResponseEntity<SimplifiedBalanceResponse> getGroupBalances(@PathVariable UUID groupId) {
-        SimplifiedBalanceResponse balances = balanceService.getSimplifiedGroupBalances(groupId);
+    @GetMapping("/users/{userId}/balances/netted")
+    public ResponseEntity<NettedBalanceResponse> getNettedUserBalances(@PathVariable UUID userId) {
+        NettedBalanceResponse balances = balanceService.getNettedUserBalances(userId);
         return ResponseEntity.ok(balances);
     }
+
+    @GetMapping("/groups/{groupId}/balances")
+    public ResponseEntity<SimplifiedBalanceResponse> getGroupBalances(
+            @PathVariable UUID groupId,
+            @RequestParam(defaultValue = "false") boolean optimal) {
+        // The ETag is the version the body was computed at; a matching If-None-Match is answered
+        // with 304 by Spring, after the (usually cached) lookup
+        BalanceService.VersionedBalances balances = balanceService.getVersionedGroupBalances(groupId, optimal);
+        return ResponseEntity.ok()
+                .eTag("\"" + balances.version() + "\"")
+                .body(balances.balances());
+    }
 }
\ No newline at end of file
@@ -1,17 +1,26 @@
 package com.expensesharing.controller;
 
 import com.expensesharing.dto.request.CreateExpenseRequest;
+import com.expensesharing.dto.request.ExpenseSearchRequest;
+import com.expensesharing.dto.response.ExpenseImportResponse;
+import com.expensesharing.dto.response.ExpensePageResponse;
 import com.expensesharing.dto.response.ExpenseResponse;
+import com.expensesharing.service.ExpenseExportService;
+import com.expensesharing.service.ExpenseImportService;
 import com.expensesharing.service.ExpenseService;
+import com.expensesharing.service.IdempotencyService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
-import java.util.List;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.UUID;
 
 @RestController
@@ -19,27 +28,90 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class ExpenseController {
 
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final ExpenseService expenseService;
+    private final ExpenseImportService expenseImportService;
+    private final ExpenseExportService expenseExportService;
+    private final IdempotencyService idempotencyService;
 
     @PostMapping
     public ResponseEntity<ExpenseResponse> createExpense(
             @PathVariable UUID groupId,
             @Valid @RequestBody CreateExpenseRequest request,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
             Authentication authentication) {
         request.setGroupId(groupId);
-        ExpenseResponse response = expenseService.createExpense(request, authentication);
-        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        IdempotencyService.Result<ExpenseResponse> result = idempotencyService.execute(
+                "expense:" + authentication.getName(), idempotencyKey, request, ExpenseResponse.class,
+                () -> expenseService.createExpense(request, authentication));
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .header(IdempotencyService.REPLAYED_HEADER, String.valueOf(result.replayed()))
+                .body(result.body());
+    }
+
+    @PostMapping(value = "/import", consumes = {"application/x-ndjson", "text/csv"})
+    public ResponseEntity<ExpenseImportResponse> importExpenses(
+            @PathVariable UUID groupId,
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream body,
+            Authentication authentication) throws IOException {
+        boolean csv = MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.valueOf("text/csv"));
+        ExpenseImportResponse response = expenseImportService.importExpenses(groupId, body, csv, authentication);
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportExpenses(
+            @PathVariable UUID groupId,
+            @RequestParam(defaultValue = "ndjson") String format,
+            Authentication authentication) {
+        boolean csv = "csv".equalsIgnoreCase(format);
+        StreamingResponseBody body = expenseExportService.exportExpenses(groupId, csv, authentication);
+        return ResponseEntity.ok()
+                .contentType(csv ? MediaType.valueOf("text/csv") : MediaType.valueOf("application/x-ndjson"))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"expenses-" + groupId + (csv ? ".csv" : ".ndjson") + "\"")
+                .body(body);
     }
 
     @GetMapping
-    public ResponseEntity<List<ExpenseResponse>> getGroupExpenses(
+    public ResponseEntity<ExpensePageResponse> getGroupExpenses(
             @PathVariable UUID groupId,
-            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) String cursor,
             @RequestParam(defaultValue = "20") int size,
-            Authentication authentication) {
-        List<ExpenseResponse> expenses = expenseService.getGroupExpenses(
+            Authentication authentication,
+            WebRequest webRequest) {
+        String etag = "\"" + expenseService.getGroupExpensesVersion(groupId, authentication) + "\"";
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        ExpensePageResponse expenses = expenseService.getGroupExpenses(
+                groupId,
+                cursor,
+                Math.max(1, Math.min(size, MAX_PAGE_SIZE)),
+                authentication
+        );
+        return ResponseEntity.ok(expenses);
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<ExpensePageResponse> searchExpenses(
+            @PathVariable UUID groupId,
+            @ModelAttribute ExpenseSearchRequest filters,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            Authentication authentication,
+            WebRequest webRequest) {
+        String etag = "\"" + expenseService.getGroupExpensesVersion(groupId, authentication) + "\"";
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        ExpensePageResponse expenses = expenseService.searchExpenses(
                 groupId,
-                PageRequest.of(page, size, Sort.by("createdAt").descending()),
+                filters,
+                cursor,
+                Math.max(1, Math.min(size, MAX_PAGE_SIZE)),
                 authentication
         );
         return ResponseEntity.ok(expenses);
@@ -53,4 +125,24 @@ public class ExpenseController {
         ExpenseResponse expense = expenseService.getExpense(expenseId, authentication);
         return ResponseEntity.ok(expense);
     }
+
+    @PutMapping("/{expenseId}")
+    public ResponseEntity<ExpenseResponse> updateExpense(
+            @PathVariable UUID groupId,
+            @PathVariable UUID expenseId,
+            @Valid @RequestBody CreateExpenseRequest request,
+            Authentication authentication) {
+        request.setGroupId(groupId);
+        ExpenseResponse expense = expenseService.updateExpense(groupId, expenseId, request, authentication);
+        return ResponseEntity.ok(expense);
+    }
+
+    @DeleteMapping("/{expenseId}")
+    public ResponseEntity<Void> deleteExpense(
+            @PathVariable UUID groupId,
+            @PathVariable UUID expenseId,
+            Authentication authentication) {
+        expenseService.deleteExpense(groupId, expenseId, authentication);
+        return ResponseEntity.noContent().build();
+    }
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package com.expensesharing.controller;
 
 import com.expensesharing.dto.request.AddMemberRequest;
 import com.expensesharing.dto.request.CreateGroupRequest;
+import com.expensesharing.dto.response.GroupPageResponse;
 import com.expensesharing.dto.response.GroupResponse;
 import com.expensesharing.service.GroupService;
 import jakarta.validation.Valid;
@@ -11,7 +12,6 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
 import java.util.UUID;
 
 @RestController
@@ -19,6 +19,8 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class GroupController {
 
+    private static final int MAX_PAGE_SIZE = 200;
+
     private final GroupService groupService;
 
     @PostMapping
@@ -54,8 +56,13 @@ public class GroupController {
     }
 
     @GetMapping
-    public ResponseEntity<List<GroupResponse>> getAllGroups(Authentication authentication) {
-        // Returns only groups the user is a member of
-        return ResponseEntity.ok(groupService.getUserGroups(authentication));
+    public ResponseEntity<GroupPageResponse> getAllGroups(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size,
+            Authentication authentication) {
+        // Returns only groups the user is a member of, all in one page; cursor and size only apply to admins,
+        // who see every group
+        return ResponseEntity.ok(groupService.getUserGroups(
+                cursor, Math.max(1, Math.min(size, MAX_PAGE_SIZE)), authentication));
     }
 }
\ No newline at end of file
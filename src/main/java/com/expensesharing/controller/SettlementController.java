@@ -2,11 +2,13 @@ package com.expensesharing.controller;
 
 import com.expensesharing.dto.request.CreateSettlementRequest;
 import com.expensesharing.dto.response.SettlementResponse;
+import com.expensesharing.service.IdempotencyService;
 import com.expensesharing.service.SettlementService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
@@ -15,10 +17,18 @@ import org.springframework.web.bind.annotation.*;
 public class SettlementController {
 
     private final SettlementService settlementService;
+    private final IdempotencyService idempotencyService;
 
     @PostMapping
-    public ResponseEntity<SettlementResponse> createSettlement(@Valid @RequestBody CreateSettlementRequest request) {
-        SettlementResponse settlement = settlementService.createSettlement(request);
-        return ResponseEntity.status(HttpStatus.CREATED).body(settlement);
+    public ResponseEntity<SettlementResponse> createSettlement(
+            @Valid @RequestBody CreateSettlementRequest request,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+            Authentication authentication) {
+        IdempotencyService.Result<SettlementResponse> result = idempotencyService.execute(
+                "settlement:" + authentication.getName(), idempotencyKey, request, SettlementResponse.class,
+                () -> settlementService.createSettlement(request));
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .header(IdempotencyService.REPLAYED_HEADER, String.valueOf(result.replayed()))
+                .body(result.body());
     }
 }
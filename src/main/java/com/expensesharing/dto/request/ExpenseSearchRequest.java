@@ -0,0 +1,33 @@
+package com.expensesharing.dto.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Optional expense filters; null fields do not restrict the result.
+ * from is inclusive and to exclusive, minAmount and maxAmount are both inclusive.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExpenseSearchRequest {
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime from;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime to;
+
+    private BigDecimal minAmount;
+    private BigDecimal maxAmount;
+    private UUID paidBy;
+    private UUID participant;
+    private String description;
+}
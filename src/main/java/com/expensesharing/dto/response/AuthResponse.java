@@ -13,6 +13,8 @@ import java.util.UUID;
 @AllArgsConstructor
 public class AuthResponse {
     private String token;
+    private String refreshToken;
+    private long expiresIn;
     private String type = "Bearer";
     private UUID userId;
     private String email;
@@ -0,0 +1,29 @@
+package com.expensesharing.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExpenseImportResponse {
+    private int imported;
+    private int failed;
+    private List<RowResult> rows;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowResult {
+        private int row;
+        private boolean success;
+        private UUID expenseId;
+        private String error;
+    }
+}
@@ -0,0 +1,19 @@
+package com.expensesharing.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+/**
+ * One page of expenses, newest first. next is the cursor of the following page, null on the last page.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExpensePageResponse {
+    private List<ExpenseResponse> items;
+    private String next;
+}
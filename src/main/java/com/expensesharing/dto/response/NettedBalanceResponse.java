@@ -0,0 +1,20 @@
+package com.expensesharing.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NettedBalanceResponse {
+    private UUID userId;
+    private List<UUID> groupIds;
+    private BigDecimal netBalance;
+    private List<SimplifiedBalanceResponse.Transaction> transactions;
+}
@@ -0,0 +1,38 @@
+package com.expensesharing.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Snapshot of one member's net balance in a group, covering every expense and
+ * settlement created strictly before as_of.
+ */
+@Entity
+@Table(name = "balance_checkpoints")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BalanceCheckpoint {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "group_id", nullable = false)
+    private Group group;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @Column(nullable = false, precision = 12, scale = 2)
+    private BigDecimal amount;
+
+    @Column(name = "as_of", nullable = false)
+    private LocalDateTime asOf;
+}
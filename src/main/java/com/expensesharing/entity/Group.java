@@ -39,6 +39,10 @@ public class Group {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    // Bumped on every expense, settlement and membership change; served as the ETag of group data
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private Long version = 0L;
+
     @OneToMany(mappedBy = "group", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<GroupMember> members = new ArrayList<>();
 
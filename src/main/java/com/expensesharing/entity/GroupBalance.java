@@ -0,0 +1,41 @@
+package com.expensesharing.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.UpdateTimestamp;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Running net balance of one member within one group.
+ * Positive value = the group owes this user, negative value = this user owes the group.
+ */
+@Entity
+@Table(name = "group_balances",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"group_id", "user_id"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GroupBalance {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "group_id", nullable = false)
+    private Group group;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @Column(name = "net_amount", nullable = false, precision = 12, scale = 2)
+    private BigDecimal netAmount = BigDecimal.ZERO;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -83,6 +83,10 @@ public class User implements UserDetails {
     @Column(nullable = false)
     private Role role = Role.USER;
 
+    // Access tokens issued with a lower version are rejected; bump it to revoke them all
+    @Column(name = "token_version", nullable = false, columnDefinition = "integer default 0")
+    private Integer tokenVersion = 0;
+
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -0,0 +1,9 @@
+package com.expensesharing.event;
+
+import java.util.UUID;
+
+/**
+ * Published inside the writing transaction whenever a group's balances change.
+ */
+public record GroupBalancesChangedEvent(UUID groupId) {
+}
@@ -0,0 +1,9 @@
+package com.expensesharing.event;
+
+import java.util.UUID;
+
+/**
+ * Published inside the writing transaction whenever a user joins a group or stops being an active member.
+ */
+public record GroupMembershipChangedEvent(UUID groupId, UUID userId, boolean active) {
+}
@@ -0,0 +1,9 @@
+package com.expensesharing.event;
+
+import java.util.UUID;
+
+/**
+ * Published inside the writing transaction when a token's jti is added to revoked_tokens.
+ */
+public record TokenRevokedEvent(UUID jti) {
+}
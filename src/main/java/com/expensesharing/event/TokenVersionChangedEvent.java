@@ -0,0 +1,10 @@
+package com.expensesharing.event;
+
+import java.util.UUID;
+
+/**
+ * Published inside the writing transaction when a user's token version is bumped,
+ * which invalidates every access token issued to them before.
+ */
+public record TokenVersionChangedEvent(UUID userId) {
+}
@@ -0,0 +1,16 @@
+package com.expensesharing.exception;
+
+import java.time.Duration;
+
+public class ServiceBusyException extends RuntimeException {
+    private final Duration retryAfter;
+
+    public ServiceBusyException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,27 @@
+package com.expensesharing.repository;
+
+import com.expensesharing.entity.BalanceCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface BalanceCheckpointRepository extends JpaRepository<BalanceCheckpoint, UUID> {
+    List<BalanceCheckpoint> findByGroupIdAndAsOf(UUID groupId, LocalDateTime asOf);
+
+    @Query("SELECT MAX(c.asOf) FROM BalanceCheckpoint c WHERE c.group.id = :groupId")
+    Optional<LocalDateTime> findLatestAsOf(@Param("groupId") UUID groupId);
+
+    @Query("SELECT MAX(c.asOf) FROM BalanceCheckpoint c")
+    Optional<LocalDateTime> findLatestAsOf();
+
+    @Modifying
+    @Query("DELETE FROM BalanceCheckpoint c WHERE c.group.id = :groupId AND c.asOf < :asOf")
+    int deleteOlderThan(@Param("groupId") UUID groupId, @Param("asOf") LocalDateTime asOf);
+}
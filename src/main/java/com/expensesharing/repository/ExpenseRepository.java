@@ -1,26 +1,65 @@
 package com.expensesharing.repository;
 
 import com.expensesharing.entity.Expense;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import com.expensesharing.repository.projection.ExpenseRow;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
-public interface ExpenseRepository extends JpaRepository<Expense, UUID> {
-    Page<Expense> findByGroupId(UUID groupId, Pageable pageable);
+public interface ExpenseRepository extends JpaRepository<Expense, UUID>, ExpenseRepositoryCustom {
+    // Keyset pages over idx_expenses_group_created_id: every page is an index range scan of limit rows.
+    // Only ids are paged and the rows are loaded afterwards, so the limit applies to expenses
+    // and not to joined split rows.
+    @Query("SELECT e.id FROM Expense e WHERE e.group.id = :groupId ORDER BY e.createdAt DESC, e.id DESC")
+    List<UUID> findFirstPageIdsByGroupId(@Param("groupId") UUID groupId, Limit limit);
 
-    @Query("SELECT e FROM Expense e WHERE e.group.id = :groupId AND e.createdAt >= :startDate")
+    @Query("SELECT e.id FROM Expense e WHERE e.group.id = :groupId " +
+            "AND (e.createdAt, e.id) < (:createdAt, :id) " +
+            "ORDER BY e.createdAt DESC, e.id DESC")
+    List<UUID> findPageIdsByGroupIdBefore(
+            @Param("groupId") UUID groupId,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") UUID id,
+            Limit limit
+    );
+
+    @Query("SELECT new com.expensesharing.repository.projection.ExpenseRow(" +
+            "e.id, e.group.id, e.description, e.totalAmount, e.paidBy.id, e.splitType, e.createdAt) " +
+            "FROM Expense e WHERE e.id IN :ids")
+    List<ExpenseRow> findRowsByIdIn(@Param("ids") Collection<UUID> ids);
+
+    /**
+     * Loads the expense with its row locked until the transaction ends, so concurrent edits and
+     * deletes of one expense run one after another and each computes its balance delta from the
+     * committed state. Splits are loaded lazily after the lock is held; a fetch join here would
+     * also lock the joined rows.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT e FROM Expense e WHERE e.id = :id")
+    Optional<Expense> findByIdForUpdate(@Param("id") UUID id);
+
+    @Query("SELECT DISTINCT e FROM Expense e LEFT JOIN FETCH e.splits WHERE e.group.id = :groupId AND e.createdAt >= :startDate")
     List<Expense> findByGroupIdAndCreatedAtAfter(
             @Param("groupId") UUID groupId,
             @Param("startDate") LocalDateTime startDate
     );
 
+    @Query("SELECT DISTINCT e.group.id FROM Expense e WHERE e.createdAt >= :startDate AND e.createdAt < :endDate")
+    List<UUID> findGroupIdsWithExpensesBetween(
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate
+    );
+
     @Query("SELECT e FROM Expense e JOIN e.splits s WHERE s.user.id = :userId")
     List<Expense> findByParticipantUserId(@Param("userId") UUID userId);
 }
\ No newline at end of file
@@ -0,0 +1,16 @@
+package com.expensesharing.repository;
+
+import com.expensesharing.dto.request.ExpenseSearchRequest;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+public interface ExpenseRepositoryCustom {
+    /**
+     * Ids of the group's expenses matching every non-null filter, newest first, starting after the
+     * (afterCreatedAt, afterId) keyset position when given.
+     */
+    List<UUID> searchIds(UUID groupId, ExpenseSearchRequest filters,
+                         LocalDateTime afterCreatedAt, UUID afterId, int limit);
+}
@@ -0,0 +1,125 @@
+package com.expensesharing.repository;
+
+import com.expensesharing.dto.request.ExpenseSearchRequest;
+import com.expensesharing.entity.Expense;
+import com.expensesharing.entity.ExpenseSplit;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.*;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Builds only the predicates that were asked for, so every combination stays a plain
+ * conjunction the planner can match against the expenses indexes; group_id always leads.
+ */
+@RequiredArgsConstructor
+public class ExpenseRepositoryImpl implements ExpenseRepositoryCustom {
+
+    private static final char LIKE_ESCAPE = '\\';
+
+    private final EntityManager entityManager;
+
+    @Override
+    public List<UUID> searchIds(UUID groupId, ExpenseSearchRequest filters,
+                                LocalDateTime afterCreatedAt, UUID afterId, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<UUID> query = cb.createQuery(UUID.class);
+        Root<Expense> expense = query.from(Expense.class);
+        Path<LocalDateTime> createdAt = expense.get("createdAt");
+        Path<UUID> id = expense.get("id");
+
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(cb.equal(expense.get("group").get("id"), groupId));
+
+        if (filters.getFrom() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(createdAt, filters.getFrom()));
+        }
+        if (filters.getTo() != null) {
+            predicates.add(cb.lessThan(createdAt, filters.getTo()));
+        }
+        if (filters.getMinAmount() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(expense.get("totalAmount"), filters.getMinAmount()));
+        }
+        if (filters.getMaxAmount() != null) {
+            predicates.add(cb.lessThanOrEqualTo(expense.get("totalAmount"), filters.getMaxAmount()));
+        }
+        if (filters.getPaidBy() != null) {
+            predicates.add(cb.equal(expense.get("paidBy").get("id"), filters.getPaidBy()));
+        }
+        if (filters.getParticipant() != null) {
+            Subquery<Integer> participates = query.subquery(Integer.class);
+            Root<ExpenseSplit> split = participates.from(ExpenseSplit.class);
+            participates.select(cb.literal(1)).where(
+                    cb.equal(split.get("expense"), expense),
+                    cb.equal(split.get("user").get("id"), filters.getParticipant()));
+            predicates.add(cb.exists(participates));
+        }
+        if (filters.getDescription() != null && !filters.getDescription().isBlank()) {
+            String prefix = filters.getDescription().toLowerCase(Locale.ROOT);
+            Expression<String> description = cb.lower(expense.get("description"));
+            // A LIKE with a bound pattern can't use the text_pattern_ops index in a generic plan,
+            // the equivalent range in its pattern operators can; the LIKE stays as the exact check
+            predicates.add(patternCompare(cb, description, "~>=~", prefix));
+            String upperBound = prefixUpperBound(prefix);
+            if (upperBound != null) {
+                predicates.add(patternCompare(cb, description, "~<~", upperBound));
+            }
+            predicates.add(cb.like(description, escapeLike(prefix) + "%", LIKE_ESCAPE));
+        }
+
+        if (afterCreatedAt != null) {
+            // The redundant upper bound on created_at gives the planner an index range for the seek
+            predicates.add(cb.lessThanOrEqualTo(createdAt, afterCreatedAt));
+            predicates.add(cb.or(
+                    cb.lessThan(createdAt, afterCreatedAt),
+                    cb.and(cb.equal(createdAt, afterCreatedAt), cb.lessThan(id, afterId))));
+        }
+
+        query.select(id)
+                .where(predicates.toArray(new Predicate[0]))
+                .orderBy(cb.desc(createdAt), cb.desc(id));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    private static Predicate patternCompare(CriteriaBuilder cb, Expression<String> left, String operator, String right) {
+        HibernateCriteriaBuilder hcb = (HibernateCriteriaBuilder) cb;
+        return hcb.isTrue(hcb.sql("(? " + operator + " ?)", Boolean.class, left, hcb.value(right)));
+    }
+
+    /**
+     * Smallest string above every string starting with prefix in byte order (the order of the
+     * pattern operators), or null if there is none: the prefix with its last code point incremented.
+     */
+    static String prefixUpperBound(String prefix) {
+        int end = prefix.length();
+        while (end > 0) {
+            int last = prefix.codePointBefore(end);
+            end -= Character.charCount(last);
+            if (last < Character.MAX_CODE_POINT) {
+                int next = last + 1 == Character.MIN_SURROGATE ? Character.MAX_SURROGATE + 1 : last + 1;
+                return new StringBuilder(end + 2).append(prefix, 0, end).appendCodePoint(next).toString();
+            }
+        }
+        return null;
+    }
+
+    private static String escapeLike(String value) {
+        StringBuilder escaped = new StringBuilder(value.length() + 4);
+        for (char c : value.toCharArray()) {
+            if (c == '%' || c == '_' || c == LIKE_ESCAPE) {
+                escaped.append(LIKE_ESCAPE);
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+}
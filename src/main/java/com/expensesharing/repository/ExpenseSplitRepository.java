@@ -1,21 +1,70 @@
 package com.expensesharing.repository;
 
 import com.expensesharing.entity.ExpenseSplit;
+import com.expensesharing.repository.projection.SplitRow;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
 public interface ExpenseSplitRepository extends JpaRepository<ExpenseSplit, UUID> {
     List<ExpenseSplit> findByUserId(UUID userId);
     List<ExpenseSplit> findByExpenseId(UUID expenseId);
 
+    @Query("SELECT new com.expensesharing.repository.projection.SplitRow(" +
+            "es.expense.id, es.user.id, es.amountOwed, es.percentage, es.paid) " +
+            "FROM ExpenseSplit es WHERE es.expense.id IN :expenseIds")
+    List<SplitRow> findRowsByExpenseIdIn(@Param("expenseIds") Collection<UUID> expenseIds);
+
     @Query("SELECT es FROM ExpenseSplit es WHERE es.expense.group.id = :groupId")
     List<ExpenseSplit> findByExpenseGroupId(@Param("groupId") UUID groupId);
 
+    /**
+     * Every split of the group with its expense, oldest expense first and the splits of one expense
+     * adjacent, read through a server-side cursor. Must be consumed inside a transaction.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT es FROM ExpenseSplit es JOIN FETCH es.expense e JOIN FETCH e.paidBy " +
+            "WHERE e.group.id = :groupId ORDER BY e.createdAt, e.id")
+    Stream<ExpenseSplit> streamByExpenseGroupId(@Param("groupId") UUID groupId);
+
     @Query("SELECT es FROM ExpenseSplit es WHERE es.user.id = :userId AND es.paid = false")
     List<ExpenseSplit> findUnpaidByUserId(@Param("userId") UUID userId);
-}
\ No newline at end of file
+
+    /**
+     * Net amount between the user and every counterparty, across all groups, in one round trip.
+     * Positive amount = the counterparty owes the user, negative amount = the user owes the counterparty.
+     */
+    @Query(value = "SELECT t.counterparty_id AS counterpartyId, SUM(t.amount) AS amount FROM (" +
+            "  SELECT es.user_id AS counterparty_id, es.amount_owed AS amount" +
+            "  FROM expense_splits es JOIN expenses e ON e.id = es.expense_id" +
+            "  WHERE e.paid_by = :userId AND es.user_id <> :userId AND es.paid = false" +
+            "  UNION ALL" +
+            "  SELECT e.paid_by, -es.amount_owed" +
+            "  FROM expense_splits es JOIN expenses e ON e.id = es.expense_id" +
+            "  WHERE es.user_id = :userId AND e.paid_by <> :userId AND es.paid = false" +
+            "  UNION ALL" +
+            "  SELECT s.to_user, -s.amount FROM settlements s WHERE s.from_user = :userId" +
+            "  UNION ALL" +
+            "  SELECT s.from_user, s.amount FROM settlements s WHERE s.to_user = :userId" +
+            ") t GROUP BY t.counterparty_id",
+            nativeQuery = true)
+    List<CounterpartyBalance> sumBalancesByCounterparty(@Param("userId") UUID userId);
+
+    interface CounterpartyBalance {
+        UUID getCounterpartyId();
+        BigDecimal getAmount();
+    }
+}
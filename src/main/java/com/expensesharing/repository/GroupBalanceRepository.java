@@ -0,0 +1,12 @@
+package com.expensesharing.repository;
+
+import com.expensesharing.entity.GroupBalance;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface GroupBalanceRepository extends JpaRepository<GroupBalance, UUID>, GroupBalanceRepositoryCustom {
+    List<GroupBalance> findByGroupId(UUID groupId);
+}
@@ -0,0 +1,28 @@
+package com.expensesharing.repository;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.UUID;
+
+public interface GroupBalanceRepositoryCustom {
+    /**
+     * Adds every user's delta to their running balance in one JDBC batch.
+     */
+    void applyDeltas(UUID groupId, Map<UUID, BigDecimal> deltas);
+
+    /**
+     * Overwrites every user's running balance in one JDBC batch.
+     */
+    void setBalances(UUID groupId, Map<UUID, BigDecimal> balances);
+
+    /**
+     * Transaction-scoped shared advisory lock on the group's ledger, held by every writer that applies deltas.
+     */
+    void lockShared(UUID groupId);
+
+    /**
+     * Transaction-scoped exclusive advisory lock on the group's ledger: waits for in-flight writers to
+     * commit and keeps new ones out, so a recomputation sees a stable history.
+     */
+    void lockExclusive(UUID groupId);
+}
@@ -0,0 +1,58 @@
+package com.expensesharing.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+@RequiredArgsConstructor
+public class GroupBalanceRepositoryImpl implements GroupBalanceRepositoryCustom {
+
+    private static final String UPSERT = "INSERT INTO group_balances (id, group_id, user_id, net_amount, updated_at) " +
+            "VALUES (gen_random_uuid(), ?, ?, ?, now()) " +
+            "ON CONFLICT (group_id, user_id) DO UPDATE SET ";
+    private static final String ADD = UPSERT + "net_amount = group_balances.net_amount + EXCLUDED.net_amount, updated_at = now()";
+    private static final String SET = UPSERT + "net_amount = EXCLUDED.net_amount, updated_at = now()";
+    // First key of the two-key advisory lock form, keeping ledger locks apart from other advisory lock users
+    private static final int LEDGER_LOCK_CLASS = 0x6C656467;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void applyDeltas(UUID groupId, Map<UUID, BigDecimal> deltas) {
+        batch(ADD, groupId, deltas);
+    }
+
+    @Override
+    public void setBalances(UUID groupId, Map<UUID, BigDecimal> balances) {
+        batch(SET, groupId, balances);
+    }
+
+    @Override
+    public void lockShared(UUID groupId) {
+        jdbcTemplate.query("SELECT pg_advisory_xact_lock_shared(?, ?)", rs -> null, LEDGER_LOCK_CLASS, lockKey(groupId));
+    }
+
+    @Override
+    public void lockExclusive(UUID groupId) {
+        jdbcTemplate.query("SELECT pg_advisory_xact_lock(?, ?)", rs -> null, LEDGER_LOCK_CLASS, lockKey(groupId));
+    }
+
+    // Collisions only make two groups wait on each other
+    private static int lockKey(UUID groupId) {
+        return Long.hashCode(groupId.getMostSignificantBits() ^ groupId.getLeastSignificantBits());
+    }
+
+    private void batch(String sql, UUID groupId, Map<UUID, BigDecimal> amounts) {
+        if (amounts.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>(amounts.size());
+        amounts.forEach((userId, amount) -> rows.add(new Object[]{groupId, userId, amount}));
+        jdbcTemplate.batchUpdate(sql, rows);
+    }
+}
@@ -1,12 +1,15 @@
 package com.expensesharing.repository;
 
 import com.expensesharing.entity.GroupMember;
+import com.expensesharing.repository.projection.MembershipRow;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 @Repository
@@ -16,4 +19,14 @@ public interface GroupMemberRepository extends JpaRepository<GroupMember, UUID>
 
     @Query("SELECT gm FROM GroupMember gm WHERE gm.user.id = :userId AND gm.isActive = true")
     List<GroupMember> findActiveByUserId(@Param("userId") UUID userId);
+
+    @Query("SELECT gm.user.id FROM GroupMember gm WHERE gm.group.id = :groupId AND gm.isActive = true")
+    Set<UUID> findActiveUserIdsByGroupId(@Param("groupId") UUID groupId);
+
+    @Query("SELECT new com.expensesharing.repository.projection.MembershipRow(gm.group.id, gm.user.id) " +
+            "FROM GroupMember gm WHERE gm.group.id IN :groupIds AND gm.isActive = true")
+    List<MembershipRow> findActiveByGroupIdIn(@Param("groupIds") Collection<UUID> groupIds);
+
+    @Query("SELECT gm.group.id FROM GroupMember gm WHERE gm.user.id = :userId AND gm.isActive = true")
+    Set<UUID> findActiveGroupIdsByUserId(@Param("userId") UUID userId);
 }
\ No newline at end of file
@@ -2,11 +2,17 @@ package com.expensesharing.repository;
 
 import com.expensesharing.entity.Group;
 import com.expensesharing.entity.User;
+import com.expensesharing.repository.projection.GroupRow;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
@@ -15,4 +21,30 @@ public interface GroupRepository extends JpaRepository<Group, UUID> {
 
     @Query("SELECT g FROM Group g JOIN g.members m WHERE m.user.id = :userId AND m.isActive = true")
     List<Group> findActiveGroupsByUserId(@Param("userId") UUID userId);
+
+    @Query("SELECT new com.expensesharing.repository.projection.GroupRow(" +
+            "g.id, g.name, g.description, g.createdBy.id, g.createdAt) FROM Group g WHERE g.id = :groupId")
+    Optional<GroupRow> findRowById(@Param("groupId") UUID groupId);
+
+    @Query("SELECT new com.expensesharing.repository.projection.GroupRow(" +
+            "g.id, g.name, g.description, g.createdBy.id, g.createdAt) FROM Group g WHERE g.id IN :groupIds " +
+            "ORDER BY g.createdAt DESC, g.id DESC")
+    List<GroupRow> findRowsByIdIn(@Param("groupIds") Collection<UUID> groupIds);
+
+    @Query("SELECT g.id FROM Group g ORDER BY g.createdAt DESC, g.id DESC")
+    List<UUID> findFirstPageIdsNewestFirst(Limit limit);
+
+    @Query("SELECT g.id FROM Group g WHERE (g.createdAt, g.id) < (:createdAt, :id) " +
+            "ORDER BY g.createdAt DESC, g.id DESC")
+    List<UUID> findPageIdsNewestFirstBefore(
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") UUID id,
+            Limit limit);
+
+    @Query("SELECT g.version FROM Group g WHERE g.id = :groupId")
+    Optional<Long> findVersionById(@Param("groupId") UUID groupId);
+
+    @Modifying
+    @Query("UPDATE Group g SET g.version = g.version + 1 WHERE g.id = :groupId")
+    int incrementVersion(@Param("groupId") UUID groupId);
 }
\ No newline at end of file
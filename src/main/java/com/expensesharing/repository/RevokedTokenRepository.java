@@ -0,0 +1,37 @@
+package com.expensesharing.repository;
+
+import com.expensesharing.entity.RevokedToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, UUID> {
+
+    /**
+     * Returns 0 if the jti was already revoked, which is how refresh token reuse is detected.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO revoked_tokens (jti, user_id, expires_at, revoked_at) " +
+            "VALUES (:jti, :userId, :expiresAt, :revokedAt) ON CONFLICT (jti) DO NOTHING",
+            nativeQuery = true)
+    int insertIfAbsent(@Param("jti") UUID jti,
+                       @Param("userId") UUID userId,
+                       @Param("expiresAt") LocalDateTime expiresAt,
+                       @Param("revokedAt") LocalDateTime revokedAt);
+
+    @Query("SELECT r.jti FROM RevokedToken r WHERE r.expiresAt > :now")
+    List<UUID> findUnexpiredJtis(@Param("now") LocalDateTime now);
+
+    @Query("SELECT r.jti FROM RevokedToken r WHERE r.revokedAt >= :since AND r.expiresAt > :now")
+    List<UUID> findJtisRevokedSince(@Param("since") LocalDateTime since, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("DELETE FROM RevokedToken r WHERE r.expiresAt <= :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
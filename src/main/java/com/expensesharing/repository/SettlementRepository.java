@@ -20,4 +20,10 @@ public interface SettlementRepository extends JpaRepository<Settlement, UUID> {
             @Param("groupId") UUID groupId,
             @Param("startDate") LocalDateTime startDate
     );
+
+    @Query("SELECT DISTINCT s.group.id FROM Settlement s WHERE s.settledAt >= :startDate AND s.settledAt < :endDate")
+    List<UUID> findGroupIdsWithSettlementsBetween(
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate
+    );
 }
\ No newline at end of file
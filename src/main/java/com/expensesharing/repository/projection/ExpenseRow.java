@@ -0,0 +1,13 @@
+package com.expensesharing.repository.projection;
+
+import com.expensesharing.entity.SplitType;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Scalar columns of an expense, read without loading a managed Expense.
+ */
+public record ExpenseRow(UUID id, UUID groupId, String description, BigDecimal totalAmount,
+                         UUID paidBy, SplitType splitType, LocalDateTime createdAt) {
+}
@@ -0,0 +1,7 @@
+package com.expensesharing.repository.projection;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+public record GroupRow(UUID id, String name, String description, UUID createdBy, LocalDateTime createdAt) {
+}
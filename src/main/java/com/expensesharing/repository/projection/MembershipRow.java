@@ -0,0 +1,6 @@
+package com.expensesharing.repository.projection;
+
+import java.util.UUID;
+
+public record MembershipRow(UUID groupId, UUID userId) {
+}
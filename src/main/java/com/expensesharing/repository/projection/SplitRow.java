@@ -0,0 +1,7 @@
+package com.expensesharing.repository.projection;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+public record SplitRow(UUID expenseId, UUID userId, BigDecimal amountOwed, BigDecimal percentage, Boolean paid) {
+}
@@ -0,0 +1,7 @@
+package com.expensesharing.repository.projection;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+public record UserRow(UUID id, String name, String email, String phone, LocalDateTime createdAt) {
+}
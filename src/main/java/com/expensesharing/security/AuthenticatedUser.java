@@ -0,0 +1,31 @@
+package com.expensesharing.security;
+
+import com.expensesharing.entity.Role;
+import com.expensesharing.exception.UnauthorizedException;
+import org.springframework.security.core.Authentication;
+
+import java.security.Principal;
+import java.util.UUID;
+
+/**
+ * Principal of a request authenticated with an access token, built from the token's claims
+ * without touching the database. getName() is the email, as it was with the UserDetails principal.
+ */
+public record AuthenticatedUser(UUID id, String email, Role role) implements Principal {
+
+    public static AuthenticatedUser from(Authentication authentication) {
+        if (authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser user) {
+            return user;
+        }
+        throw new UnauthorizedException("Authentication required");
+    }
+
+    @Override
+    public String getName() {
+        return email;
+    }
+
+    public boolean isAdmin() {
+        return role == Role.ADMIN;
+    }
+}
@@ -1,100 +1,155 @@
 package com.expensesharing.security;
 
+import com.expensesharing.entity.Role;
+import com.expensesharing.entity.User;
 import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.security.Keys;
-import io.jsonwebtoken.security.SignatureException;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
-import java.util.Date;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.function.Function;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
 
+/**
+ * Issues and verifies HS256 access and refresh tokens. Access tokens live jwt.expiration, refresh
+ * tokens jwt.refresh-expiration; every token carries a random jti so it can be revoked on its own.
+ * The signing key and parser are built once; verified
+ * tokens are remembered for a short while in a bounded cache keyed by the token's SHA-256 hash,
+ * so repeated requests with the same token skip the signature check.
+ */
 @Component
 public class JwtUtil {
 
-    @Value("${jwt.secret:mySecretKeyForJWTTokenGenerationThatIsAtLeast256BitsLongForHS256Algorithm}")
-    private String secret;
+    static final String USER_ID = "uid";
+    static final String ROLE = "role";
+    static final String TOKEN_VERSION = "tv";
+    static final String TOKEN_TYPE = "typ";
 
-    @Value("${jwt.expiration:86400000}") // 24 hours in milliseconds
-    private Long expiration;
+    private final SecretKey signingKey;
+    private final JwtParser parser;
+    private final long expiration;
+    private final long refreshExpiration;
+    private final Duration cacheTtl;
+    private final Map<String, CachedClaims> verified;
 
-    private SecretKey getSigningKey() {
-        byte[] keyBytes = secret.getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
+    public JwtUtil(@Value("${jwt.secret:mySecretKeyForJWTTokenGenerationThatIsAtLeast256BitsLongForHS256Algorithm}") String secret,
+                   @Value("${jwt.expiration:900000}") long expiration, // 15 minutes in milliseconds
+                   @Value("${jwt.refresh-expiration:1209600000}") long refreshExpiration, // 14 days
+                   @Value("${jwt.cache.ttl:PT1M}") Duration cacheTtl,
+                   @Value("${jwt.cache.max-size:10000}") int cacheMaxSize) {
+        this.signingKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parser().verifyWith(signingKey).build();
+        this.expiration = expiration;
+        this.refreshExpiration = refreshExpiration;
+        this.cacheTtl = cacheTtl;
+        this.verified = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedClaims> eldest) {
+                return size() > cacheMaxSize;
+            }
+        };
     }
 
-    public String extractUsername(String token) {
-        try {
-            return extractClaim(token, Claims::getSubject);
-        } catch (ExpiredJwtException | MalformedJwtException | SignatureException | IllegalArgumentException e) {
-            throw new RuntimeException("Invalid JWT token", e);
+    /**
+     * Verifies the signature and expiry once and returns the token's claims.
+     *
+     * Does not check revocation or the token version, and accepts both token types.
+     *
+     * @throws JwtException if the token is malformed, badly signed, expired or lacks the identity claims
+     */
+    public TokenClaims verify(String token) {
+        Instant now = Instant.now();
+        String key = hash(token);
+
+        synchronized (verified) {
+            CachedClaims cached = verified.get(key);
+            if (cached != null) {
+                if (!cached.isStale(now)) {
+                    return cached.claims();
+                }
+                verified.remove(key);
+            }
         }
-    }
 
-    public Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+        Claims payload = parser.parseSignedClaims(token).getPayload();
+        String userId = payload.get(USER_ID, String.class);
+        String role = payload.get(ROLE, String.class);
+        Integer tokenVersion = payload.get(TOKEN_VERSION, Integer.class);
+        String tokenType = payload.get(TOKEN_TYPE, String.class);
+        if (userId == null || role == null || tokenVersion == null || tokenType == null || payload.getId() == null) {
+            // Issued before these claims existed; the client has to log in again
+            throw new MalformedJwtException("Token lacks identity claims");
+        }
+        TokenClaims claims = new TokenClaims(
+                payload.getSubject(),
+                UUID.fromString(userId),
+                Role.valueOf(role),
+                tokenVersion,
+                UUID.fromString(payload.getId()),
+                TokenType.valueOf(tokenType),
+                payload.getIssuedAt().toInstant(),
+                payload.getExpiration().toInstant());
+
+        synchronized (verified) {
+            verified.put(key, new CachedClaims(claims, now.plus(cacheTtl)));
+        }
+        return claims;
     }
 
-    public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
+    public String generateAccessToken(User user) {
+        return createToken(user, TokenType.ACCESS, expiration);
     }
 
-    private Claims extractAllClaims(String token) {
-        try {
-            return Jwts.parser()
-                    .verifyWith(getSigningKey())
-                    .build()
-                    .parseSignedClaims(token)
-                    .getPayload();
-        } catch (SignatureException e) {
-            throw new RuntimeException("Invalid JWT signature", e);
-        } catch (MalformedJwtException e) {
-            throw new RuntimeException("Invalid JWT token", e);
-        } catch (ExpiredJwtException e) {
-            throw new RuntimeException("JWT token is expired", e);
-        } catch (IllegalArgumentException e) {
-            throw new RuntimeException("JWT token is invalid", e);
-        }
+    public String generateRefreshToken(User user) {
+        return createToken(user, TokenType.REFRESH, refreshExpiration);
     }
 
-    private Boolean isTokenExpired(String token) {
-        try {
-            return extractExpiration(token).before(new Date());
-        } catch (Exception e) {
-            return true;
-        }
+    /**
+     * Seconds an access token issued now stays valid, for the expires_in of auth responses.
+     */
+    public long getAccessTokenTtlSeconds() {
+        return expiration / 1000;
     }
 
-    public String generateToken(UserDetails userDetails) {
+    private String createToken(User user, TokenType type, long ttlMillis) {
         Map<String, Object> claims = new HashMap<>();
-        return createToken(claims, userDetails.getUsername());
-    }
+        claims.put(USER_ID, user.getId().toString());
+        claims.put(ROLE, user.getRole().name());
+        claims.put(TOKEN_VERSION, user.getTokenVersion());
+        claims.put(TOKEN_TYPE, type.name());
 
-    private String createToken(Map<String, Object> claims, String subject) {
+        long now = System.currentTimeMillis();
         return Jwts.builder()
                 .claims(claims)
-                .subject(subject)
-                .issuedAt(new Date(System.currentTimeMillis()))
-                .expiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSigningKey())
+                .id(UUID.randomUUID().toString())
+                .subject(user.getUsername())
+                .issuedAt(new Date(now))
+                .expiration(new Date(now + ttlMillis))
+                .signWith(signingKey)
                 .compact();
     }
 
-    public Boolean validateToken(String token, UserDetails userDetails) {
+    private static String hash(String token) {
         try {
-            final String username = extractUsername(token);
-            return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
-        } catch (Exception e) {
-            return false;
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record CachedClaims(TokenClaims claims, Instant cachedUntil) {
+        boolean isStale(Instant now) {
+            return claims.isExpired(now) || !cachedUntil.isAfter(now);
         }
     }
-}
\ No newline at end of file
+}
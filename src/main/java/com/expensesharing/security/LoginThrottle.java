@@ -0,0 +1,122 @@
+package com.expensesharing.security;
+
+import com.expensesharing.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Token-bucket throttle for the auth endpoints, one bucket per email and one per client IP.
+ * Buckets start full and refill continuously; both must have a token for an attempt to proceed,
+ * so neither a single account nor a single client can keep the password executor busy.
+ * Every attempt spends an IP token, but only failed logins spend an email token, so the owner
+ * of an account can keep signing in while nobody is guessing its password.
+ * Buckets live in bounded LRU maps, an evicted bucket simply starts full again.
+ */
+@Component
+public class LoginThrottle {
+
+    private final Map<String, TokenBucket> emailBuckets;
+    private final Map<String, TokenBucket> ipBuckets;
+    private final int emailCapacity;
+    private final double emailRefillPerNano;
+    private final int ipCapacity;
+    private final double ipRefillPerNano;
+    private final Counter emailRejections;
+    private final Counter ipRejections;
+
+    public LoginThrottle(MeterRegistry meterRegistry,
+                         @Value("${auth.throttle.email.capacity:5}") int emailCapacity,
+                         @Value("${auth.throttle.email.refill-period:PT1M}") Duration emailRefillPeriod,
+                         @Value("${auth.throttle.ip.capacity:20}") int ipCapacity,
+                         @Value("${auth.throttle.ip.refill-period:PT1M}") Duration ipRefillPeriod,
+                         @Value("${auth.throttle.max-size:100000}") int maxSize) {
+        this.emailCapacity = emailCapacity;
+        this.emailRefillPerNano = (double) emailCapacity / emailRefillPeriod.toNanos();
+        this.ipCapacity = ipCapacity;
+        this.ipRefillPerNano = (double) ipCapacity / ipRefillPeriod.toNanos();
+        this.emailRejections = meterRegistry.counter("auth.throttle.rejected", "key", "email");
+        this.ipRejections = meterRegistry.counter("auth.throttle.rejected", "key", "ip");
+        this.emailBuckets = lru(maxSize);
+        this.ipBuckets = lru(maxSize);
+    }
+
+    /**
+     * Takes a token from the IP bucket if it has one and, when email is non-null, the email bucket
+     * has one too. The email token is only spent by {@link #recordFailure(String)}.
+     */
+    public void acquire(String email, String ip) {
+        long now = System.nanoTime();
+        synchronized (this) {
+            TokenBucket ipBucket = ipBuckets.computeIfAbsent(ip, k -> new TokenBucket(ipCapacity, now));
+            ipBucket.refill(now, ipCapacity, ipRefillPerNano);
+            TokenBucket emailBucket = null;
+            if (email != null) {
+                emailBucket = emailBuckets.computeIfAbsent(email.toLowerCase(Locale.ROOT),
+                        k -> new TokenBucket(emailCapacity, now));
+                emailBucket.refill(now, emailCapacity, emailRefillPerNano);
+            }
+
+            if (ipBucket.tokens < 1) {
+                ipRejections.increment();
+                throw new TooManyRequestsException("Too many attempts from this address, please retry later",
+                        ipBucket.timeUntilToken(ipRefillPerNano));
+            }
+            if (emailBucket != null && emailBucket.tokens < 1) {
+                emailRejections.increment();
+                throw new TooManyRequestsException("Too many attempts for this account, please retry later",
+                        emailBucket.timeUntilToken(emailRefillPerNano));
+            }
+
+            ipBucket.tokens--;
+        }
+    }
+
+    /**
+     * Spends a token from the email bucket after a failed login. Failures racing each other past
+     * {@link #acquire} can drain it to zero but not below, so the wait never exceeds a full refill.
+     */
+    public void recordFailure(String email) {
+        long now = System.nanoTime();
+        synchronized (this) {
+            TokenBucket emailBucket = emailBuckets.computeIfAbsent(email.toLowerCase(Locale.ROOT),
+                    k -> new TokenBucket(emailCapacity, now));
+            emailBucket.refill(now, emailCapacity, emailRefillPerNano);
+            emailBucket.tokens = Math.max(0, emailBucket.tokens - 1);
+        }
+    }
+
+    private static Map<String, TokenBucket> lru(int maxSize) {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, TokenBucket> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    private static final class TokenBucket {
+        private double tokens;
+        private long refilledAt;
+
+        TokenBucket(int capacity, long now) {
+            this.tokens = capacity;
+            this.refilledAt = now;
+        }
+
+        void refill(long now, int capacity, double refillPerNano) {
+            tokens = Math.min(capacity, tokens + (now - refilledAt) * refillPerNano);
+            refilledAt = now;
+        }
+
+        Duration timeUntilToken(double refillPerNano) {
+            return Duration.ofNanos((long) Math.ceil((1 - tokens) / refillPerNano));
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.expensesharing.security;
+
+import com.expensesharing.exception.ServiceBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Password hashing and verification on the bounded passwordHashExecutor, so BCrypt cost is capped
+ * at a fixed number of cores however many logins arrive. When the queue is full, or a task waits
+ * longer than auth.password.timeout, the caller gets a ServiceBusyException (503) instead of queueing.
+ * A timed-out task is cancelled and taken off the queue, so no hashing is done for a caller that
+ * has already given up, and its slot goes to the next request.
+ * Publishes auth.password.hash (latency by operation), auth.password.queue and auth.password.rejected.
+ */
+@Component
+public class PasswordHasher {
+
+    private static final Duration RETRY_AFTER = Duration.ofSeconds(1);
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolTaskExecutor executor;
+    private final Duration timeout;
+    private final Timer encodeTimer;
+    private final Timer matchTimer;
+    private final Counter rejected;
+    // Checked against for unknown emails, so they take as long as a wrong password
+    private final String unknownUserHash;
+
+    public PasswordHasher(PasswordEncoder passwordEncoder,
+                          @Qualifier("passwordHashExecutor") ThreadPoolTaskExecutor executor,
+                          MeterRegistry meterRegistry,
+                          @Value("${auth.password.timeout:PT5S}") Duration timeout) {
+        this.passwordEncoder = passwordEncoder;
+        this.executor = executor;
+        this.timeout = timeout;
+        this.encodeTimer = meterRegistry.timer("auth.password.hash", "operation", "encode");
+        this.matchTimer = meterRegistry.timer("auth.password.hash", "operation", "matches");
+        this.rejected = meterRegistry.counter("auth.password.rejected");
+        Gauge.builder("auth.password.queue", executor, e -> e.getThreadPoolExecutor().getQueue().size())
+                .register(meterRegistry);
+        this.unknownUserHash = passwordEncoder.encode("unknown-user-placeholder");
+    }
+
+    public String encode(String rawPassword) {
+        return submit(() -> passwordEncoder.encode(rawPassword), encodeTimer);
+    }
+
+    /**
+     * A null encodedPassword (no such user) is still checked against a dummy hash and never matches.
+     */
+    public boolean matches(String rawPassword, String encodedPassword) {
+        if (encodedPassword == null) {
+            submit(() -> passwordEncoder.matches(rawPassword, unknownUserHash), matchTimer);
+            return false;
+        }
+        return submit(() -> passwordEncoder.matches(rawPassword, encodedPassword), matchTimer);
+    }
+
+    private <T> T submit(Supplier<T> task, Timer timer) {
+        Callable<T> timed = () -> timer.record(task);
+        Future<T> future;
+        try {
+            future = executor.submit(timed);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new ServiceBusyException("Too many sign-in requests, please retry shortly", RETRY_AFTER);
+        }
+
+        try {
+            return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            drop(future);
+            rejected.increment();
+            throw new ServiceBusyException("Too many sign-in requests, please retry shortly", RETRY_AFTER);
+        } catch (InterruptedException e) {
+            drop(future);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing password", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    // A queued task never starts once cancelled; one already hashing runs to completion
+    private void drop(Future<?> future) {
+        future.cancel(true);
+        if (future instanceof Runnable queued) {
+            executor.getThreadPoolExecutor().remove(queued);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.expensesharing.security;
+
+import com.expensesharing.event.TokenRevokedEvent;
+import com.expensesharing.repository.RevokedTokenRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Denylist of revoked token ids (jti), checked on every authenticated request without a database
+ * round trip. A Bloom filter answers the common "not revoked" case from a few bit reads; only its
+ * positives go to the exact set, so false positives never reject a valid token.
+ * Both are rebuilt from revoked_tokens on startup and after expired rows are purged, and rows
+ * written by other instances are picked up every jwt.revocation.sync-interval.
+ */
+@Slf4j
+@Component
+public class RevokedTokens {
+
+    // Revocations committed slightly out of revoked_at order, or on an instance with a skewed clock, are still synced
+    private static final Duration SYNC_OVERLAP = Duration.ofMinutes(1);
+
+    private final RevokedTokenRepository repository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final int expectedEntries;
+    private volatile Denylist denylist;
+    private LocalDateTime syncedUntil;
+
+    public RevokedTokens(RevokedTokenRepository repository,
+                         ApplicationEventPublisher eventPublisher,
+                         TransactionTemplate transactionTemplate,
+                         MeterRegistry meterRegistry,
+                         @Value("${jwt.revocation.expected-entries:100000}") int expectedEntries) {
+        this.repository = repository;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = transactionTemplate;
+        this.expectedEntries = expectedEntries;
+        this.denylist = new Denylist(expectedEntries);
+        Gauge.builder("auth.revoked-tokens", this, r -> r.denylist.exact.size()).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public synchronized void rebuild() {
+        LocalDateTime now = LocalDateTime.now();
+        List<UUID> jtis = repository.findUnexpiredJtis(now);
+
+        Denylist rebuilt = new Denylist(Math.max(expectedEntries, jtis.size() * 2));
+        jtis.forEach(rebuilt::add);
+        denylist = rebuilt;
+        syncedUntil = now;
+        log.info("Loaded {} revoked tokens", jtis.size());
+    }
+
+    public boolean isRevoked(UUID jti) {
+        Denylist current = denylist;
+        return current.filter.mightContain(jti) && current.exact.contains(jti);
+    }
+
+    /**
+     * Persists the revocation; this instance starts rejecting the token once the transaction commits.
+     *
+     * @return false if the token had already been revoked
+     */
+    @Transactional
+    public boolean revoke(TokenClaims claims) {
+        int inserted = repository.insertIfAbsent(claims.tokenId(), claims.userId(),
+                toLocal(claims.expiresAt()), LocalDateTime.now());
+        eventPublisher.publishEvent(new TokenRevokedEvent(claims.tokenId()));
+        return inserted > 0;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public synchronized void onTokenRevoked(TokenRevokedEvent event) {
+        denylist.add(event.jti());
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.revocation.sync-interval:PT10S}",
+            initialDelayString = "${jwt.revocation.sync-interval:PT10S}")
+    public synchronized void sync() {
+        LocalDateTime now = LocalDateTime.now();
+        List<UUID> jtis = repository.findJtisRevokedSince(syncedUntil.minus(SYNC_OVERLAP), now);
+        jtis.forEach(denylist::add);
+        syncedUntil = now;
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.revocation.purge-interval:PT1H}",
+            initialDelayString = "${jwt.revocation.purge-interval:PT1H}")
+    public void purgeExpired() {
+        Integer deleted = transactionTemplate.execute(status -> repository.deleteExpired(LocalDateTime.now()));
+        log.debug("Purged {} expired revoked tokens", deleted);
+        // Expired entries can't be removed from the filter, so start over from what is left
+        rebuild();
+    }
+
+    private static LocalDateTime toLocal(Instant instant) {
+        return LocalDateTime.ofInstant(instant, ZoneId.systemDefault());
+    }
+
+    private static final class Denylist {
+        private final BloomFilter filter;
+        private final Set<UUID> exact = ConcurrentHashMap.newKeySet();
+
+        Denylist(int expectedEntries) {
+            this.filter = new BloomFilter(expectedEntries);
+        }
+
+        void add(UUID jti) {
+            exact.add(jti);
+            filter.add(jti);
+        }
+    }
+
+    /**
+     * Sized for about 1% false positives at expectedEntries (9.6 bits and 7 probes per entry);
+     * beyond that it degrades gracefully, since positives are confirmed against the exact set.
+     * Probes use double hashing of the two halves of the UUID.
+     */
+    private static final class BloomFilter {
+        private static final int PROBES = 7;
+
+        private final AtomicLongArray words;
+        private final long bitCount;
+
+        BloomFilter(int expectedEntries) {
+            int wordCount = (int) Math.max(1, Math.ceil(Math.max(expectedEntries, 1) * 9.6 / 64));
+            this.words = new AtomicLongArray(wordCount);
+            this.bitCount = (long) wordCount * 64;
+        }
+
+        void add(UUID id) {
+            long h1 = mix(id.getMostSignificantBits());
+            long h2 = mix(id.getLeastSignificantBits());
+            for (int i = 0; i < PROBES; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bitCount);
+                long mask = 1L << bit;
+                words.getAndAccumulate((int) (bit >>> 6), mask, (word, m) -> word | m);
+            }
+        }
+
+        boolean mightContain(UUID id) {
+            long h1 = mix(id.getMostSignificantBits());
+            long h2 = mix(id.getLeastSignificantBits());
+            for (int i = 0; i < PROBES; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bitCount);
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // MurmurHash3 finalizer
+        private static long mix(long h) {
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            h ^= h >>> 33;
+            return h;
+        }
+    }
+}
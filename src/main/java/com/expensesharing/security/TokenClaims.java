@@ -0,0 +1,18 @@
+package com.expensesharing.security;
+
+import com.expensesharing.entity.Role;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * The verified contents of a token that the application uses. tokenId is the jti,
+ * which is what revocation works on.
+ */
+public record TokenClaims(String subject, UUID userId, Role role, int tokenVersion,
+                          UUID tokenId, TokenType type, Instant issuedAt, Instant expiresAt) {
+
+    public boolean isExpired(Instant now) {
+        return !expiresAt.isAfter(now);
+    }
+}
@@ -0,0 +1,9 @@
+package com.expensesharing.security;
+
+/**
+ * Access tokens authenticate API requests; refresh tokens are only accepted by /api/auth/refresh.
+ */
+public enum TokenType {
+    ACCESS,
+    REFRESH
+}
@@ -0,0 +1,111 @@
+package com.expensesharing.security;
+
+import com.expensesharing.event.TokenVersionChangedEvent;
+import com.expensesharing.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.UUID;
+
+/**
+ * Current token version per user. Tokens carry the version they were issued with and are
+ * rejected once it is lower than the user's current one, which is how role changes and
+ * "sign out everywhere" take effect before the tokens expire.
+ * Versions are cached for jwt.token-version.ttl, which bounds how long another instance
+ * may keep accepting revoked tokens; this instance drops its entry on commit.
+ * A load that started before that commit is returned but not cached, so it can't put the old
+ * version back for another ttl.
+ */
+@Component
+public class TokenVersions {
+
+    private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Duration ttl;
+    private final Map<UUID, CachedVersion> cache;
+    // Clock value of each user's latest invalidation, kept about as long as a load can take
+    private final Map<UUID, Long> invalidatedAt;
+    private long clock;
+
+    public TokenVersions(UserRepository userRepository,
+                         ApplicationEventPublisher eventPublisher,
+                         @Value("${jwt.token-version.ttl:PT30S}") Duration ttl,
+                         @Value("${jwt.token-version.max-size:10000}") int maxSize) {
+        this.userRepository = userRepository;
+        this.eventPublisher = eventPublisher;
+        this.ttl = ttl;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, CachedVersion> eldest) {
+                return size() > maxSize;
+            }
+        };
+        this.invalidatedAt = new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Long> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * The user's current version, or empty if the user no longer exists.
+     */
+    public OptionalInt current(UUID userId) {
+        Instant now = Instant.now();
+        long started;
+        synchronized (cache) {
+            CachedVersion cached = cache.get(userId);
+            if (cached != null && cached.loadedAt().plus(ttl).isAfter(now)) {
+                return cached.version();
+            }
+            started = clock;
+        }
+
+        OptionalInt version = userRepository.findTokenVersionById(userId)
+                .map(OptionalInt::of)
+                .orElseGet(OptionalInt::empty);
+        synchronized (cache) {
+            Long invalidated = invalidatedAt.get(userId);
+            if (invalidated == null || invalidated <= started) {
+                cache.put(userId, new CachedVersion(version, now));
+            }
+        }
+        return version;
+    }
+
+    public boolean isCurrent(TokenClaims claims) {
+        OptionalInt version = current(claims.userId());
+        return version.isPresent() && claims.tokenVersion() >= version.getAsInt();
+    }
+
+    /**
+     * Invalidates every token issued to the user so far. Call after changing their role.
+     */
+    @Transactional
+    public void revokeAll(UUID userId) {
+        userRepository.incrementTokenVersion(userId);
+        eventPublisher.publishEvent(new TokenVersionChangedEvent(userId));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onTokenVersionChanged(TokenVersionChangedEvent event) {
+        synchronized (cache) {
+            cache.remove(event.userId());
+            invalidatedAt.remove(event.userId());
+            invalidatedAt.put(event.userId(), ++clock);
+        }
+    }
+
+    private record CachedVersion(OptionalInt version, Instant loadedAt) {
+    }
+}
@@ -1,30 +1,43 @@
 package com.expensesharing.service;
 
 import com.expensesharing.dto.request.LoginRequest;
+import com.expensesharing.dto.request.RefreshTokenRequest;
 import com.expensesharing.dto.request.RegisterRequest;
 import com.expensesharing.dto.response.AuthResponse;
 import com.expensesharing.entity.Role;  // ← ADD THIS IMPORT
 import com.expensesharing.entity.User;
 import com.expensesharing.repository.UserRepository;
 import com.expensesharing.security.JwtUtil;
+import com.expensesharing.security.LoginThrottle;
+import com.expensesharing.security.PasswordHasher;
+import com.expensesharing.security.RevokedTokens;
+import com.expensesharing.security.TokenClaims;
+import com.expensesharing.security.TokenType;
+import com.expensesharing.security.TokenVersions;
+import io.jsonwebtoken.JwtException;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+/**
+ * Not transactional on purpose: password hashing runs on the bounded PasswordHasher executor and
+ * can wait there, which must not hold a database connection. Each repository call runs on its own.
+ */
 @Service
-@Transactional
 @RequiredArgsConstructor
 public class AuthService {
 
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHasher passwordHasher;
+    private final LoginThrottle loginThrottle;
     private final JwtUtil jwtUtil;
-    private final AuthenticationManager authenticationManager;
+    private final TokenVersions tokenVersions;
+    private final RevokedTokens revokedTokens;
+
+    public AuthResponse register(RegisterRequest request, String clientIp) {
+        loginThrottle.acquire(null, clientIp);
 
-    public AuthResponse register(RegisterRequest request) {
         // Check if user already exists
         if (userRepository.existsByEmail(request.getEmail())) {
             throw new IllegalArgumentException("Email already registered");
@@ -35,47 +48,81 @@ public class AuthService {
         user.setName(request.getName());
         user.setEmail(request.getEmail());
         user.setPhone(request.getPhone());
-        user.setPassword(passwordEncoder.encode(request.getPassword()));
+        user.setPassword(passwordHasher.encode(request.getPassword()));
         user.setRole(Role.USER);  // ← FIXED: Changed from "USER" to Role.USER
 
         User savedUser = userRepository.save(user);
 
-        // Generate token - User implements UserDetails, pass it directly
-        String token = jwtUtil.generateToken(savedUser);
+        return issueTokens(savedUser, "User registered successfully");
+    }
 
-        return AuthResponse.builder()
-                .token(token)
-                .type("Bearer")
-                .userId(savedUser.getId())
-                .email(savedUser.getEmail())
-                .name(savedUser.getName())
-                .message("User registered successfully")
-                .build();
+    public AuthResponse login(LoginRequest request, String clientIp) {
+        loginThrottle.acquire(request.getEmail(), clientIp);
+
+        // Authenticate user; unknown emails are hashed too so both failures look the same
+        User user = userRepository.findByEmail(request.getEmail()).orElse(null);
+        if (!passwordHasher.matches(request.getPassword(), user != null ? user.getPassword() : null)) {
+            loginThrottle.recordFailure(request.getEmail());
+            throw new BadCredentialsException("Bad credentials");
+        }
+
+        return issueTokens(user, "Login successful");
     }
 
-    public AuthResponse login(LoginRequest request) {
-        // Authenticate user
-        authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(
-                        request.getEmail(),
-                        request.getPassword()
-                )
-        );
+    /**
+     * Exchanges a refresh token for a new access and refresh token pair. The presented refresh token
+     * is revoked, so each one works once; presenting a revoked one means it was copied, and every
+     * token of the user is revoked.
+     */
+    public AuthResponse refresh(RefreshTokenRequest request) {
+        TokenClaims claims = verifyRefreshToken(request.getRefreshToken());
+        if (claims == null || !tokenVersions.isCurrent(claims)) {
+            throw new BadCredentialsException("Invalid refresh token");
+        }
+        if (!revokedTokens.revoke(claims)) {
+            tokenVersions.revokeAll(claims.userId());
+            throw new BadCredentialsException("Refresh token has already been used");
+        }
+
+        User user = userRepository.findById(claims.userId())
+                .orElseThrow(() -> new BadCredentialsException("Invalid refresh token"));
+        return issueTokens(user, "Token refreshed");
+    }
 
-        // Get user from database
-        User user = userRepository.findByEmail(request.getEmail())
-                .orElseThrow(() -> new IllegalArgumentException("User not found"));
+    /**
+     * Revokes the access token the request was authenticated with and, if given, the refresh token.
+     */
+    public void logout(RefreshTokenRequest request, Authentication authentication) {
+        if (authentication != null && authentication.getCredentials() instanceof TokenClaims accessClaims) {
+            revokedTokens.revoke(accessClaims);
+        }
+        if (request != null && request.getRefreshToken() != null) {
+            TokenClaims refreshClaims = verifyRefreshToken(request.getRefreshToken());
+            if (refreshClaims != null) {
+                revokedTokens.revoke(refreshClaims);
+            }
+        }
+    }
 
-        // Generate token - User implements UserDetails
-        String token = jwtUtil.generateToken(user);
+    private TokenClaims verifyRefreshToken(String token) {
+        try {
+            TokenClaims claims = jwtUtil.verify(token);
+            return claims.type() == TokenType.REFRESH ? claims : null;
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+    }
 
+    private AuthResponse issueTokens(User user, String message) {
         return AuthResponse.builder()
-                .token(token)
+                .token(jwtUtil.generateAccessToken(user))
+                .refreshToken(jwtUtil.generateRefreshToken(user))
+                .expiresIn(jwtUtil.getAccessTokenTtlSeconds())
                 .type("Bearer")
                 .userId(user.getId())
                 .email(user.getEmail())
                 .name(user.getName())
-                .message("Login successful")
+                .message(message)
                 .build();
     }
 }
\ No newline at end of file
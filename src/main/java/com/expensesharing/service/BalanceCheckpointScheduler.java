@@ -0,0 +1,80 @@
+package com.expensesharing.service;
+
+import com.expensesharing.repository.BalanceCheckpointRepository;
+import com.expensesharing.repository.ExpenseRepository;
+import com.expensesharing.repository.SettlementRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Periodically rolls balance checkpoints forward for groups that had expenses or settlements
+ * since the previous run, then reconciles each of those groups' ledger rows against the new
+ * checkpoint plus the few minutes of history after it. The fresh checkpoint is what keeps that
+ * check cheap enough to run for every active group; repaired groups are counted in
+ * balance.ledger.repaired and logged, since the ledger should never drift.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BalanceCheckpointScheduler {
+
+    private static final LocalDateTime BEGINNING = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final BalanceLedger balanceLedger;
+    private final BalanceCheckpointRepository checkpointRepository;
+    private final ExpenseRepository expenseRepository;
+    private final SettlementRepository settlementRepository;
+    private final MeterRegistry meterRegistry;
+
+    // Writes still in flight when a checkpoint is taken may carry an earlier timestamp;
+    // stay this far behind the clock so they are never skipped.
+    @Value("${balance.checkpoint.safety-lag:PT5M}")
+    private Duration safetyLag;
+
+    private LocalDateTime lastCutoff;
+
+    @Scheduled(fixedDelayString = "${balance.checkpoint.interval:PT15M}",
+            initialDelayString = "${balance.checkpoint.initial-delay:PT1M}")
+    public void rollCheckpoints() {
+        if (lastCutoff == null) {
+            lastCutoff = checkpointRepository.findLatestAsOf().orElse(BEGINNING);
+        }
+        LocalDateTime cutoff = LocalDateTime.now().minus(safetyLag);
+        if (!cutoff.isAfter(lastCutoff)) {
+            return;
+        }
+
+        Set<UUID> activeGroups = new HashSet<>(expenseRepository.findGroupIdsWithExpensesBetween(lastCutoff, cutoff));
+        activeGroups.addAll(settlementRepository.findGroupIdsWithSettlementsBetween(lastCutoff, cutoff));
+
+        int failed = 0;
+        for (UUID groupId : activeGroups) {
+            try {
+                balanceLedger.checkpoint(groupId, cutoff);
+                if (balanceLedger.reconcile(groupId)) {
+                    meterRegistry.counter("balance.ledger.repaired").increment();
+                    log.warn("Repaired drifted balances of group {}", groupId);
+                }
+            } catch (RuntimeException e) {
+                failed++;
+                log.warn("Failed to checkpoint balances of group {}", groupId, e);
+            }
+        }
+
+        // Retry the whole window next time if any group failed
+        if (failed == 0) {
+            lastCutoff = cutoff;
+        }
+        log.debug("Checkpointed {} active groups up to {}", activeGroups.size() - failed, cutoff);
+    }
+}
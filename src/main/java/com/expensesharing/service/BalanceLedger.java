@@ -0,0 +1,242 @@
+package com.expensesharing.service;
+
+import com.expensesharing.entity.*;
+import com.expensesharing.repository.*;
+import com.expensesharing.event.GroupBalancesChangedEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Maintains the persisted per-group net balances (group_balances).
+ * Writers apply deltas in their own transaction so reads never have to replay history,
+ * and a GroupBalancesChangedEvent lets caches drop the group once that transaction commits.
+ */
+@Service
+@Transactional
+@RequiredArgsConstructor
+public class BalanceLedger {
+
+    private static final LocalDateTime BEGINNING = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final GroupBalanceRepository groupBalanceRepository;
+    private final BalanceCheckpointRepository checkpointRepository;
+    private final ExpenseRepository expenseRepository;
+    private final SettlementRepository settlementRepository;
+    private final GroupRepository groupRepository;
+    private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public void recordExpense(Expense expense) {
+        BalanceSheet deltas = new BalanceSheet(expense.getSplits().size() + 1);
+        addExpense(deltas, expense);
+        recordDeltas(expense.getGroup().getId(), deltas);
+    }
+
+    public void recordSettlement(Settlement settlement) {
+        BalanceSheet deltas = new BalanceSheet(2);
+        addSettlement(deltas, settlement);
+        recordDeltas(settlement.getGroup().getId(), deltas);
+    }
+
+    /**
+     * Applies already-aggregated per-user deltas to the group's ledger rows, creating missing ones.
+     * Every group's ledger is complete from its creation on (V3 backfilled the ones that predate it),
+     * so there is nothing to build first.
+     */
+    public void recordDeltas(UUID groupId, BalanceSheet deltas) {
+        groupBalanceRepository.lockShared(groupId);
+        eventPublisher.publishEvent(new GroupBalancesChangedEvent(groupId));
+
+        Map<UUID, BigDecimal> changed = new HashMap<>();
+        for (int i = 0; i < deltas.size(); i++) {
+            if (deltas.centsAt(i) != 0) {
+                changed.put(deltas.userAt(i), BalanceSheet.toAmount(deltas.centsAt(i)));
+            }
+        }
+        groupBalanceRepository.applyDeltas(groupId, changed);
+    }
+
+    /**
+     * Payer is credited the full amount, every participant is debited their share.
+     */
+    static void addExpense(BalanceSheet balances, Expense expense) {
+        balances.add(expense.getPaidBy().getId(), expense.getTotalAmount());
+        for (ExpenseSplit split : expense.getSplits()) {
+            balances.add(split.getUser().getId(), -BalanceSheet.toCents(split.getAmountOwed()));
+        }
+    }
+
+    /**
+     * Reverses addExpense, for an expense that is being edited or deleted.
+     */
+    static void subtractExpense(BalanceSheet balances, Expense expense) {
+        balances.add(expense.getPaidBy().getId(), -BalanceSheet.toCents(expense.getTotalAmount()));
+        for (ExpenseSplit split : expense.getSplits()) {
+            balances.add(split.getUser().getId(), BalanceSheet.toCents(split.getAmountOwed()));
+        }
+    }
+
+    /**
+     * fromUser paid toUser.
+     */
+    static void addSettlement(BalanceSheet balances, Settlement settlement) {
+        long amount = BalanceSheet.toCents(settlement.getAmount());
+        balances.add(settlement.getFromUser().getId(), amount);
+        balances.add(settlement.getToUser().getId(), -amount);
+    }
+
+    /**
+     * Records the delta of an edit or deletion of something created at createdAt. Besides the ledger
+     * rows, the latest checkpoint is corrected when it already includes the original, since
+     * reconcile would otherwise start from the stale amounts and never replay the change.
+     */
+    public void recordCorrection(UUID groupId, LocalDateTime createdAt, BalanceSheet deltas) {
+        // Before reading the checkpoint, so a concurrent checkpoint roll can't drop the adjustment
+        groupBalanceRepository.lockShared(groupId);
+        Optional<LocalDateTime> latest = checkpointRepository.findLatestAsOf(groupId);
+        if (latest.isPresent() && createdAt.isBefore(latest.get())) {
+            adjustCheckpoint(groupId, latest.get(), deltas);
+        }
+        recordDeltas(groupId, deltas);
+    }
+
+    private void adjustCheckpoint(UUID groupId, LocalDateTime asOf, BalanceSheet deltas) {
+        Map<UUID, BalanceCheckpoint> rows = new HashMap<>();
+        for (BalanceCheckpoint row : checkpointRepository.findByGroupIdAndAsOf(groupId, asOf)) {
+            rows.put(row.getUser().getId(), row);
+        }
+
+        List<BalanceCheckpoint> changed = new ArrayList<>();
+        for (int i = 0; i < deltas.size(); i++) {
+            long cents = deltas.centsAt(i);
+            if (cents == 0) {
+                continue;
+            }
+            BalanceCheckpoint row = rows.get(deltas.userAt(i));
+            if (row == null) {
+                row = new BalanceCheckpoint();
+                row.setGroup(groupRepository.getReferenceById(groupId));
+                row.setUser(userRepository.getReferenceById(deltas.userAt(i)));
+                row.setAmount(BigDecimal.ZERO);
+                row.setAsOf(asOf);
+            }
+            row.setAmount(BalanceSheet.toAmount(BalanceSheet.toCents(row.getAmount()) + cents));
+            changed.add(row);
+        }
+        checkpointRepository.saveAll(changed);
+    }
+
+    /**
+     * Current net balance of every member that has ever taken part in the group.
+     * Positive value = the group owes this user, negative value = this user owes the group.
+     * A group without rows has had no expenses or settlements yet.
+     */
+    public BalanceSheet getGroupBalances(UUID groupId) {
+        List<GroupBalance> rows = groupBalanceRepository.findByGroupId(groupId);
+
+        BalanceSheet balances = new BalanceSheet(rows.size());
+        for (GroupBalance row : rows) {
+            balances.add(row.getUser().getId(), row.getNetAmount());
+        }
+        return balances;
+    }
+
+    /**
+     * Checks the group's ledger rows against its latest checkpoint plus the expenses and settlements
+     * created after it, and overwrites the rows if they differ. Holds the group's exclusive ledger
+     * lock, so no writer can commit between the replay and the comparison.
+     *
+     * @return true if the rows had drifted and were repaired
+     */
+    public boolean reconcile(UUID groupId) {
+        groupBalanceRepository.lockExclusive(groupId);
+        BalanceSheet expected = new BalanceSheet();
+        LocalDateTime asOf = loadLatestCheckpoint(groupId, expected);
+        replay(groupId, asOf, null, expected);
+
+        BalanceSheet actual = getGroupBalances(groupId);
+        Map<UUID, BigDecimal> repaired = new HashMap<>();
+        for (int i = 0; i < expected.size(); i++) {
+            if (expected.centsAt(i) != actual.centsOf(expected.userAt(i))) {
+                repaired.put(expected.userAt(i), BalanceSheet.toAmount(expected.centsAt(i)));
+            }
+        }
+        for (int i = 0; i < actual.size(); i++) {
+            if (actual.centsAt(i) != expected.centsOf(actual.userAt(i))) {
+                repaired.put(actual.userAt(i), BalanceSheet.toAmount(expected.centsOf(actual.userAt(i))));
+            }
+        }
+        if (repaired.isEmpty()) {
+            return false;
+        }
+
+        eventPublisher.publishEvent(new GroupBalancesChangedEvent(groupId));
+        groupBalanceRepository.setBalances(groupId, repaired);
+        // New balances under the old version would keep the stale body cached and confirmed by 304s
+        groupRepository.incrementVersion(groupId);
+        return true;
+    }
+
+    /**
+     * Rolls the group's checkpoint forward to cutoff, replaying only what happened since the
+     * previous checkpoint, and drops the superseded one.
+     */
+    public void checkpoint(UUID groupId, LocalDateTime cutoff) {
+        groupBalanceRepository.lockExclusive(groupId);
+        BalanceSheet balances = new BalanceSheet();
+        LocalDateTime asOf = loadLatestCheckpoint(groupId, balances);
+        if (!asOf.isBefore(cutoff)) {
+            return;
+        }
+        replay(groupId, asOf, cutoff, balances);
+
+        Group group = groupRepository.getReferenceById(groupId);
+        List<BalanceCheckpoint> rows = new ArrayList<>(balances.size());
+        for (int i = 0; i < balances.size(); i++) {
+            BalanceCheckpoint row = new BalanceCheckpoint();
+            row.setGroup(group);
+            row.setUser(userRepository.getReferenceById(balances.userAt(i)));
+            row.setAmount(BalanceSheet.toAmount(balances.centsAt(i)));
+            row.setAsOf(cutoff);
+            rows.add(row);
+        }
+        checkpointRepository.saveAll(rows);
+        checkpointRepository.deleteOlderThan(groupId, cutoff);
+    }
+
+    private LocalDateTime loadLatestCheckpoint(UUID groupId, BalanceSheet into) {
+        Optional<LocalDateTime> latest = checkpointRepository.findLatestAsOf(groupId);
+        if (latest.isEmpty()) {
+            return BEGINNING;
+        }
+        for (BalanceCheckpoint row : checkpointRepository.findByGroupIdAndAsOf(groupId, latest.get())) {
+            into.add(row.getUser().getId(), row.getAmount());
+        }
+        return latest.get();
+    }
+
+    /**
+     * Applies expenses and settlements created in [from, until) to the sheet; a null until means no upper bound.
+     */
+    private void replay(UUID groupId, LocalDateTime from, LocalDateTime until, BalanceSheet balances) {
+        for (Expense expense : expenseRepository.findByGroupIdAndCreatedAtAfter(groupId, from)) {
+            if (until != null && !expense.getCreatedAt().isBefore(until)) {
+                continue;
+            }
+            addExpense(balances, expense);
+        }
+
+        for (Settlement settlement : settlementRepository.findByGroupIdAndSettledAtAfter(groupId, from)) {
+            if (until != null && !settlement.getSettledAt().isBefore(until)) {
+                continue;
+            }
+            addSettlement(balances, settlement);
+        }
+    }
+}
\ No newline at end of file
@@ -1,18 +1,20 @@
 package com.expensesharing.service;
 
 import com.expensesharing.dto.response.BalanceResponse;
+import com.expensesharing.dto.response.NettedBalanceResponse;
 import com.expensesharing.dto.response.SimplifiedBalanceResponse;
-import com.expensesharing.entity.Expense;
-import com.expensesharing.entity.ExpenseSplit;
-import com.expensesharing.entity.Settlement;
+import com.expensesharing.exception.ResourceNotFoundException;
 import com.expensesharing.repository.ExpenseSplitRepository;
-import com.expensesharing.repository.SettlementRepository;
-import com.expensesharing.repository.UserRepository;
+import com.expensesharing.repository.GroupRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 @Service
@@ -20,174 +22,172 @@ import java.util.stream.Collectors;
 public class BalanceService {
 
     private final ExpenseSplitRepository splitRepository;
-    private final SettlementRepository settlementRepository;
-    private final UserRepository userRepository;
+    private final UserDirectory userDirectory;
     private final BalanceSimplifier balanceSimplifier;
+    private final BalanceLedger balanceLedger;
+    private final MembershipIndex membershipIndex;
+    private final GroupRepository groupRepository;
+    private final GroupBalanceCache groupBalanceCache;
+    @Qualifier("balanceExecutor")
+    private final Executor balanceExecutor;
 
     public BalanceResponse getUserBalances(UUID userId) {
-        Map<UUID, BigDecimal> netBalances = calculateNetBalances(userId);
+        BalanceSheet netBalances = calculateNetBalances(userId);
 
         List<BalanceResponse.BalanceDetail> owes = new ArrayList<>();
         List<BalanceResponse.BalanceDetail> owedBy = new ArrayList<>();
-        BigDecimal totalOwed = BigDecimal.ZERO;
-        BigDecimal totalOwing = BigDecimal.ZERO;
+        long totalOwed = 0;
+        long totalOwing = 0;
+        Map<UUID, UserDirectory.UserSummary> users = userDirectory.resolve(netBalances.userIds());
 
-        for (Map.Entry<UUID, BigDecimal> entry : netBalances.entrySet()) {
-            BigDecimal amount = entry.getValue();
-            String userName = userRepository.findById(entry.getKey())
-                    .map(u -> u.getName())
-                    .orElse("Unknown");
+        for (int i = 0; i < netBalances.size(); i++) {
+            UUID counterpartyId = netBalances.userAt(i);
+            long amount = netBalances.centsAt(i);
+            String userName = UserDirectory.nameOf(users, counterpartyId);
 
-            if (amount.compareTo(BigDecimal.ZERO) < 0) {
+            if (amount < 0) {
                 // This user owes money to someone
                 owes.add(BalanceResponse.BalanceDetail.builder()
-                        .userId(entry.getKey())
+                        .userId(counterpartyId)
                         .userName(userName)
-                        .amount(amount.abs())
+                        .amount(BalanceSheet.toAmount(-amount))
                         .build());
-                totalOwing = totalOwing.add(amount.abs());
-            } else if (amount.compareTo(BigDecimal.ZERO) > 0) {
+                totalOwing += -amount;
+            } else if (amount > 0) {
                 // Someone owes this user money
                 owedBy.add(BalanceResponse.BalanceDetail.builder()
-                        .userId(entry.getKey())
+                        .userId(counterpartyId)
                         .userName(userName)
-                        .amount(amount)
+                        .amount(BalanceSheet.toAmount(amount))
                         .build());
-                totalOwed = totalOwed.add(amount);
+                totalOwed += amount;
             }
         }
 
         return BalanceResponse.builder()
                 .owes(owes)
                 .owedBy(owedBy)
-                .netBalance(totalOwed.subtract(totalOwing))
+                .netBalance(BalanceSheet.toAmount(totalOwed - totalOwing))
                 .build();
     }
 
+    /**
+     * Changes whenever the group's balances may have changed; a single indexed lookup.
+     */
+    public long getGroupVersion(UUID groupId) {
+        return groupRepository.findVersionById(groupId)
+                .orElseThrow(() -> new ResourceNotFoundException("Group not found"));
+    }
+
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
     public SimplifiedBalanceResponse getSimplifiedGroupBalances(UUID groupId) {
-        Map<UUID, BigDecimal> userBalances = calculateGroupBalances(groupId);
-        List<BalanceSimplifier.Transaction> transactions = balanceSimplifier.simplifyBalances(userBalances);
+        return getSimplifiedGroupBalances(groupId, false);
+    }
 
-        List<SimplifiedBalanceResponse.Transaction> response = transactions.stream()
-                .map(t -> {
-                    String fromName = userRepository.findById(t.getFromUser()).map(u -> u.getName()).orElse("Unknown");
-                    String toName = userRepository.findById(t.getToUser()).map(u -> u.getName()).orElse("Unknown");
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public SimplifiedBalanceResponse getSimplifiedGroupBalances(UUID groupId, boolean optimal) {
+        return getVersionedGroupBalances(groupId, optimal).balances();
+    }
 
-                    return SimplifiedBalanceResponse.Transaction.builder()
-                            .fromUser(t.getFromUser())
-                            .fromUserName(fromName)
-                            .toUser(t.getToUser())
-                            .toUserName(toName)
-                            .amount(t.getAmount())
-                            .build();
-                })
-                .collect(Collectors.toList());
+    /**
+     * The group's simplified balances together with the version they were computed at. Both are read
+     * from one snapshot, so the version can serve as the ETag of exactly this body.
+     *
+     * @param optimal find the true minimum number of transfers (small groups only)
+     *                instead of the greedy largest-debtor/largest-creditor matching
+     */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public VersionedBalances getVersionedGroupBalances(UUID groupId, boolean optimal) {
+        long version = getGroupVersion(groupId);
+        SimplifiedBalanceResponse balances = groupBalanceCache.get(groupId, optimal, version,
+                () -> computeSimplifiedGroupBalances(groupId, optimal));
+        return new VersionedBalances(version, balances);
+    }
+
+    private SimplifiedBalanceResponse computeSimplifiedGroupBalances(UUID groupId, boolean optimal) {
+        BalanceSheet userBalances = balanceLedger.getGroupBalances(groupId);
+        List<BalanceSimplifier.Transaction> transactions = optimal
+                ? balanceSimplifier.simplifyBalancesOptimal(userBalances)
+                : balanceSimplifier.simplifyBalances(userBalances);
+        Map<UUID, UserDirectory.UserSummary> users = userDirectory.resolve(participantIds(transactions));
 
         return SimplifiedBalanceResponse.builder()
                 .groupId(groupId)
-                .transactions(response)
+                .transactions(toResponse(transactions, users))
                 .build();
     }
 
     /**
-     * Calculate net balances for a specific user across all their groups
-     * Positive value = Others owe this user
-     * Negative value = This user owes others
+     * Nets the user's debts across every group they are active in: the groups' balances are
+     * loaded in parallel, summed into one debt graph and simplified as a whole.
+     * Only the transfers the user takes part in are returned.
      */
-    private Map<UUID, BigDecimal> calculateNetBalances(UUID userId) {
-        Map<UUID, BigDecimal> balances = new HashMap<>();
-
-        // Get all expense splits where this user is involved
-        List<ExpenseSplit> allSplits = splitRepository.findByUserId(userId);
-
-        for (ExpenseSplit split : allSplits) {
-            Expense expense = split.getExpense();
-            UUID payerId = expense.getPaidBy().getId();
-            UUID splitUserId = split.getUser().getId();
-
-            // If this user is the payer
-            if (payerId.equals(userId)) {
-                // For each other person's split in this expense, they owe this user
-                List<ExpenseSplit> allSplitsInExpense = splitRepository.findByExpenseId(expense.getId());
-                for (ExpenseSplit otherSplit : allSplitsInExpense) {
-                    UUID otherUserId = otherSplit.getUser().getId();
-                    if (!otherUserId.equals(userId) && !otherSplit.getPaid()) {
-                        // Other user owes this user (positive balance)
-                        balances.merge(otherUserId, otherSplit.getAmountOwed(), BigDecimal::add);
-                    }
-                }
-            }
-            // If this user owes money (not the payer and not paid)
-            else if (splitUserId.equals(userId) && !split.getPaid()) {
-                // This user owes the payer (negative balance)
-                balances.merge(payerId, split.getAmountOwed().negate(), BigDecimal::add);
-            }
-        }
+    public NettedBalanceResponse getNettedUserBalances(UUID userId) {
+        List<UUID> groupIds = new ArrayList<>(membershipIndex.groupsOf(userId));
 
-        // Apply settlements
-        List<Settlement> settlementsFrom = settlementRepository.findByFromUserId(userId);
-        for (Settlement settlement : settlementsFrom) {
-            // This user paid toUser, so reduce what this user owes (or toUser owes this user back)
-            balances.merge(settlement.getToUser().getId(), settlement.getAmount().negate(), BigDecimal::add);
-        }
+        List<CompletableFuture<BalanceSheet>> loads = groupIds.stream()
+                .map(groupId -> CompletableFuture.supplyAsync(() -> balanceLedger.getGroupBalances(groupId), balanceExecutor))
+                .collect(Collectors.toList());
 
-        List<Settlement> settlementsTo = settlementRepository.findByToUserId(userId);
-        for (Settlement settlement : settlementsTo) {
-            // fromUser paid this user, so reduce what fromUser owes this user
-            balances.merge(settlement.getFromUser().getId(), settlement.getAmount(), BigDecimal::add);
+        BalanceSheet combined = new BalanceSheet();
+        for (CompletableFuture<BalanceSheet> load : loads) {
+            combined.addAll(load.join());
         }
 
-        return balances;
+        List<BalanceSimplifier.Transaction> transactions = balanceSimplifier.simplifyBalances(combined).stream()
+                .filter(t -> t.getFromUser().equals(userId) || t.getToUser().equals(userId))
+                .collect(Collectors.toList());
+        Map<UUID, UserDirectory.UserSummary> users = userDirectory.resolve(participantIds(transactions));
+
+        return NettedBalanceResponse.builder()
+                .userId(userId)
+                .groupIds(groupIds)
+                .netBalance(BalanceSheet.toAmount(combined.centsOf(userId)))
+                .transactions(toResponse(transactions, users))
+                .build();
     }
 
     /**
-     * FIXED: Calculate group balances correctly
-     * Logic: For each expense split, track who paid what vs who owes what
+     * Calculate net balances for a specific user across all their groups
+     * Positive value = Others owe this user
+     * Negative value = This user owes others
      */
-    private Map<UUID, BigDecimal> calculateGroupBalances(UUID groupId) {
-        List<ExpenseSplit> splits = splitRepository.findByExpenseGroupId(groupId);
-        Map<UUID, BigDecimal> balances = new HashMap<>();
-
-        // Group splits by expense
-        Map<UUID, List<ExpenseSplit>> splitsByExpense = splits.stream()
-                .collect(Collectors.groupingBy(split -> split.getExpense().getId()));
-
-        // For each expense
-        for (Map.Entry<UUID, List<ExpenseSplit>> entry : splitsByExpense.entrySet()) {
-            List<ExpenseSplit> expenseSplits = entry.getValue();
-            if (expenseSplits.isEmpty()) continue;
-
-            Expense expense = expenseSplits.get(0).getExpense();
-            UUID payerId = expense.getPaidBy().getId();
-
-            // For each split in this expense
-            for (ExpenseSplit split : expenseSplits) {
-                UUID userId = split.getUser().getId();
-                BigDecimal amountOwed = split.getAmountOwed();
-
-                if (userId.equals(payerId)) {
-                    // This person paid for the expense
-                    // They are owed (totalAmount - their share)
-                    BigDecimal theirShare = amountOwed;
-                    BigDecimal theyPaid = expense.getTotalAmount();
-                    BigDecimal netForPayer = theyPaid.subtract(theirShare);
-                    balances.merge(payerId, netForPayer, BigDecimal::add);
-                } else {
-                    // This person didn't pay
-                    // They owe their share to the payer (negative)
-                    balances.merge(userId, amountOwed.negate(), BigDecimal::add);
-                }
-            }
+    private BalanceSheet calculateNetBalances(UUID userId) {
+        List<ExpenseSplitRepository.CounterpartyBalance> rows = splitRepository.sumBalancesByCounterparty(userId);
+        BalanceSheet balances = new BalanceSheet(rows.size());
+        for (ExpenseSplitRepository.CounterpartyBalance row : rows) {
+            balances.add(row.getCounterpartyId(), row.getAmount());
         }
+        return balances;
+    }
+
+    private List<SimplifiedBalanceResponse.Transaction> toResponse(List<BalanceSimplifier.Transaction> transactions,
+                                                                   Map<UUID, UserDirectory.UserSummary> users) {
+        return transactions.stream()
+                .map(t -> {
+                    String fromName = UserDirectory.nameOf(users, t.getFromUser());
+                    String toName = UserDirectory.nameOf(users, t.getToUser());
 
-        // Apply settlements
-        List<Settlement> settlements = settlementRepository.findByGroupId(groupId);
-        for (Settlement settlement : settlements) {
-            // fromUser paid toUser
-            balances.merge(settlement.getFromUser().getId(), settlement.getAmount(), BigDecimal::add);
-            balances.merge(settlement.getToUser().getId(), settlement.getAmount().negate(), BigDecimal::add);
+                    return SimplifiedBalanceResponse.Transaction.builder()
+                            .fromUser(t.getFromUser())
+                            .fromUserName(fromName)
+                            .toUser(t.getToUser())
+                            .toUserName(toName)
+                            .amount(t.getAmount())
+                            .build();
+                })
+                .collect(Collectors.toList());
+    }
+
+    private Set<UUID> participantIds(List<BalanceSimplifier.Transaction> transactions) {
+        Set<UUID> userIds = new HashSet<>();
+        for (BalanceSimplifier.Transaction t : transactions) {
+            userIds.add(t.getFromUser());
+            userIds.add(t.getToUser());
         }
+        return userIds;
+    }
 
-        return balances;
+    public record VersionedBalances(long version, SimplifiedBalanceResponse balances) {
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,151 @@
+package com.expensesharing.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.*;
+
+/**
+ * Net balances per user held as long minor units (cents) in primitive arrays.
+ * Users get dense int ids in insertion order, found through an open-addressed table of those ids,
+ * so neither lookups nor additions allocate. Amounts are converted back to scale-2 BigDecimal only
+ * when a response is built, so results match BigDecimal arithmetic exactly.
+ * Not thread-safe.
+ */
+public final class BalanceSheet {
+
+    private static final int SCALE = 2;
+
+    // Linear-probing table of dense id + 1, 0 marks a free slot; kept at most half full
+    private int[] slots;
+    private UUID[] users;
+    private long[] cents;
+    private int size;
+
+    public BalanceSheet() {
+        this(16);
+    }
+
+    public BalanceSheet(int expectedUsers) {
+        int capacity = Math.max(expectedUsers, 4);
+        this.slots = new int[Integer.highestOneBit(capacity - 1) << 2];
+        this.users = new UUID[capacity];
+        this.cents = new long[capacity];
+    }
+
+    public static BalanceSheet of(Map<UUID, BigDecimal> balances) {
+        BalanceSheet sheet = new BalanceSheet(balances.size());
+        balances.forEach(sheet::add);
+        return sheet;
+    }
+
+    /**
+     * Rounds like a NUMERIC(_, 2) column would, so in-flight amounts match what gets persisted.
+     */
+    public static long toCents(BigDecimal amount) {
+        return amount.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal toAmount(long cents) {
+        return BigDecimal.valueOf(cents, SCALE);
+    }
+
+    /**
+     * Dense id of the user, assigning the next free one on first sight.
+     */
+    public int indexOf(UUID userId) {
+        int slot = slotOf(userId);
+        if (slots[slot] != 0) {
+            return slots[slot] - 1;
+        }
+        if (size == users.length) {
+            int capacity = size * 2;
+            users = Arrays.copyOf(users, capacity);
+            cents = Arrays.copyOf(cents, capacity);
+        }
+        users[size] = userId;
+        slots[slot] = size + 1;
+        if ((size + 1) * 2 > slots.length) {
+            rehash(slots.length * 2);
+        }
+        return size++;
+    }
+
+    public void add(UUID userId, long amountCents) {
+        int i = indexOf(userId);
+        cents[i] = Math.addExact(cents[i], amountCents);
+    }
+
+    public void add(UUID userId, BigDecimal amount) {
+        add(userId, toCents(amount));
+    }
+
+    public void addAll(BalanceSheet other) {
+        for (int i = 0; i < other.size; i++) {
+            add(other.users[i], other.cents[i]);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public UUID userAt(int i) {
+        return users[i];
+    }
+
+    public long centsAt(int i) {
+        return cents[i];
+    }
+
+    public long centsOf(UUID userId) {
+        int i = slots[slotOf(userId)];
+        return i != 0 ? cents[i - 1] : 0;
+    }
+
+    /**
+     * Distinct user ids in dense id order.
+     */
+    public List<UUID> userIds() {
+        return Collections.unmodifiableList(Arrays.asList(users).subList(0, size));
+    }
+
+    public Map<UUID, BigDecimal> toMap() {
+        Map<UUID, BigDecimal> result = new HashMap<>(size * 4 / 3 + 1);
+        for (int i = 0; i < size; i++) {
+            result.put(users[i], toAmount(cents[i]));
+        }
+        return result;
+    }
+
+    // Slot holding userId, or the free slot where it would go
+    private int slotOf(UUID userId) {
+        int mask = slots.length - 1;
+        int slot = hash(userId) & mask;
+        while (slots[slot] != 0 && !users[slots[slot] - 1].equals(userId)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash(int capacity) {
+        slots = new int[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i <= size; i++) {
+            int slot = hash(users[i]) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = i + 1;
+        }
+    }
+
+    // Random UUIDs are already well mixed; the multiply spreads any structure over the low bits
+    private static int hash(UUID userId) {
+        long bits = userId.getMostSignificantBits() ^ userId.getLeastSignificantBits();
+        return (int) ((bits ^ (bits >>> 32)) * 0x9E3779B97F4A7C15L >>> 32);
+    }
+}
@@ -2,6 +2,7 @@ package com.expensesharing.service;
 
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import java.math.BigDecimal;
 import java.util.*;
@@ -9,50 +10,184 @@ import java.util.*;
 @Service
 public class BalanceSimplifier {
 
+    /** Hard cap for the exact search: its tables grow as 2^n. */
+    private static final int OPTIMAL_LIMIT = 20;
+
+    private final int optimalMaxMembers;
+
+    public BalanceSimplifier(@Value("${balance.simplifier.optimal-max-members:16}") int optimalMaxMembers) {
+        this.optimalMaxMembers = Math.min(optimalMaxMembers, OPTIMAL_LIMIT);
+    }
+
     public List<Transaction> simplifyBalances(Map<UUID, BigDecimal> balances) {
-        List<UserBalance> creditors = new ArrayList<>();
-        List<UserBalance> debtors = new ArrayList<>();
-
-        balances.forEach((userId, balance) -> {
-            if (balance.compareTo(BigDecimal.ZERO) > 0) {
-                creditors.add(new UserBalance(userId, balance));
-            } else if (balance.compareTo(BigDecimal.ZERO) < 0) {
-                debtors.add(new UserBalance(userId, balance.abs()));
+        return simplifyBalances(BalanceSheet.of(balances));
+    }
+
+    /**
+     * Greedy settlement: repeatedly matches the largest debtor with the largest creditor.
+     * O(n log n), at most n - 1 transfers.
+     */
+    public List<Transaction> simplifyBalances(BalanceSheet balances) {
+        int n = balances.size();
+        int[] users = new int[n];
+        for (int i = 0; i < n; i++) {
+            users[i] = i;
+        }
+        List<Transaction> transactions = new ArrayList<>();
+        settleGreedy(balances, users, n, transactions);
+        return transactions;
+    }
+
+    /**
+     * Minimum number of transfers. Balances are partitioned into the largest possible number
+     * of zero-sum subsets, each settled with size - 1 transfers. Exponential in the number of
+     * non-zero balances, so groups above balance.simplifier.optimal-max-members use the greedy path.
+     */
+    public List<Transaction> simplifyBalancesOptimal(BalanceSheet balances) {
+        int[] open = new int[balances.size()];
+        int n = 0;
+        long total = 0;
+        for (int u = 0; u < balances.size(); u++) {
+            long cents = balances.centsAt(u);
+            if (cents != 0) {
+                open[n++] = u;
+                total += cents;
             }
-        });
+        }
+        if (n > optimalMaxMembers || total != 0) {
+            return simplifyBalances(balances);
+        }
+
+        int full = (1 << n) - 1;
+        long[] sum = new long[full + 1];
+        byte[] groups = new byte[full + 1];
+        for (int mask = 1; mask <= full; mask++) {
+            int low = Integer.numberOfTrailingZeros(mask);
+            int rest = mask & (mask - 1);
+            sum[mask] = sum[rest] + balances.centsAt(open[low]);
 
-        creditors.sort((a, b) -> b.getAmount().compareTo(a.getAmount()));
-        debtors.sort((a, b) -> b.getAmount().compareTo(a.getAmount()));
+            int best = 0;
+            for (int bits = mask; bits != 0; bits &= bits - 1) {
+                best = Math.max(best, groups[mask ^ Integer.lowestOneBit(bits)]);
+            }
+            groups[mask] = (byte) (sum[mask] == 0 ? best + 1 : best);
+        }
 
+        // Walk back down the best chain of masks; consecutive zero-sum masks delimit one subset
         List<Transaction> transactions = new ArrayList<>();
-        int i = 0, j = 0;
+        int[] subset = new int[n];
+        int subsetSize = 0;
+        int mask = full;
+        while (mask != 0) {
+            int target = groups[mask] - (sum[mask] == 0 ? 1 : 0);
+            for (int bits = mask; bits != 0; bits &= bits - 1) {
+                int bit = Integer.lowestOneBit(bits);
+                if (groups[mask ^ bit] == target) {
+                    subset[subsetSize++] = open[Integer.numberOfTrailingZeros(bit)];
+                    mask ^= bit;
+                    break;
+                }
+            }
+            if (sum[mask] == 0) {
+                settleGreedy(balances, subset, subsetSize, transactions);
+                subsetSize = 0;
+            }
+        }
+        return transactions;
+    }
 
-        while (i < creditors.size() && j < debtors.size()) {
-            UserBalance creditor = creditors.get(i);
-            UserBalance debtor = debtors.get(j);
+    private static void settleGreedy(BalanceSheet balances, int[] users, int count, List<Transaction> out) {
+        AmountHeap creditors = new AmountHeap(count);
+        AmountHeap debtors = new AmountHeap(count);
+        for (int i = 0; i < count; i++) {
+            long cents = balances.centsAt(users[i]);
+            if (cents > 0) {
+                creditors.push(users[i], cents);
+            } else if (cents < 0) {
+                debtors.push(users[i], -cents);
+            }
+        }
 
-            BigDecimal amount = creditor.getAmount().min(debtor.getAmount());
-            transactions.add(new Transaction(debtor.getUserId(), creditor.getUserId(), amount));
+        while (!creditors.isEmpty() && !debtors.isEmpty()) {
+            int creditor = creditors.topUser();
+            long credit = creditors.topAmount();
+            int debtor = debtors.topUser();
+            long debt = debtors.topAmount();
+            creditors.pop();
+            debtors.pop();
 
-            creditor.setAmount(creditor.getAmount().subtract(amount));
-            debtor.setAmount(debtor.getAmount().subtract(amount));
+            long amount = Math.min(credit, debt);
+            out.add(new Transaction(balances.userAt(debtor), balances.userAt(creditor), BalanceSheet.toAmount(amount)));
 
-            if (creditor.getAmount().compareTo(BigDecimal.ZERO) == 0) {
-                i++;
+            if (credit > amount) {
+                creditors.push(creditor, credit - amount);
             }
-            if (debtor.getAmount().compareTo(BigDecimal.ZERO) == 0) {
-                j++;
+            if (debt > amount) {
+                debtors.push(debtor, debt - amount);
             }
         }
-
-        return transactions;
     }
 
-    @Data
-    @AllArgsConstructor
-    public static class UserBalance {
-        private UUID userId;
-        private BigDecimal amount;
+    /**
+     * Binary max-heap of (user index, amount) pairs over parallel primitive arrays.
+     */
+    private static final class AmountHeap {
+        private final int[] users;
+        private final long[] amounts;
+        private int size;
+
+        AmountHeap(int capacity) {
+            this.users = new int[capacity];
+            this.amounts = new long[capacity];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        int topUser() {
+            return users[0];
+        }
+
+        long topAmount() {
+            return amounts[0];
+        }
+
+        void push(int user, long amount) {
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (amounts[parent] >= amount) {
+                    break;
+                }
+                users[i] = users[parent];
+                amounts[i] = amounts[parent];
+                i = parent;
+            }
+            users[i] = user;
+            amounts[i] = amount;
+        }
+
+        void pop() {
+            int user = users[--size];
+            long amount = amounts[size];
+            int i = 0;
+            int half = size >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                if (child + 1 < size && amounts[child + 1] > amounts[child]) {
+                    child++;
+                }
+                if (amount >= amounts[child]) {
+                    break;
+                }
+                users[i] = users[child];
+                amounts[i] = amounts[child];
+                i = child;
+            }
+            users[i] = user;
+            amounts[i] = amount;
+        }
     }
 
     @Data
@@ -62,4 +197,4 @@ public class BalanceSimplifier {
         private UUID toUser;
         private BigDecimal amount;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,194 @@
+package com.expensesharing.service;
+
+import com.expensesharing.dto.response.ExpenseResponse;
+import com.expensesharing.entity.Expense;
+import com.expensesharing.entity.ExpenseSplit;
+import com.expensesharing.entity.SplitType;
+import com.expensesharing.exception.ResourceNotFoundException;
+import com.expensesharing.exception.UnauthorizedException;
+import com.expensesharing.repository.ExpenseSplitRepository;
+import com.expensesharing.repository.GroupRepository;
+import com.expensesharing.security.AuthenticatedUser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Full expense history of a group as NDJSON (one ExpenseResponse-shaped object per line) or CSV.
+ * Rows are read through a database cursor and written as they arrive; each expense is detached
+ * once written, so memory stays flat regardless of group size.
+ */
+@Service
+public class ExpenseExportService {
+
+    static final String CSV_HEADER = "id,createdAt,description,totalAmount,paidBy,splitType,splits";
+
+    private final ExpenseSplitRepository splitRepository;
+    private final GroupRepository groupRepository;
+    private final MembershipIndex membershipIndex;
+    private final UserDirectory userDirectory;
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public ExpenseExportService(ExpenseSplitRepository splitRepository,
+                                GroupRepository groupRepository,
+                                MembershipIndex membershipIndex,
+                                UserDirectory userDirectory,
+                                ObjectMapper objectMapper,
+                                EntityManager entityManager,
+                                PlatformTransactionManager transactionManager) {
+        this.splitRepository = splitRepository;
+        this.groupRepository = groupRepository;
+        this.membershipIndex = membershipIndex;
+        this.userDirectory = userDirectory;
+        this.objectMapper = objectMapper;
+        this.entityManager = entityManager;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Checks access up front; the returned body runs later on the async response thread
+     * in its own read-only transaction.
+     */
+    public StreamingResponseBody exportExpenses(UUID groupId, boolean csv, Authentication authentication) {
+        AuthenticatedUser requestingUser = AuthenticatedUser.from(authentication);
+
+        if (!membershipIndex.isMember(groupId, requestingUser.id()) && !requestingUser.isAdmin()) {
+            throw new UnauthorizedException("You are not a member of this group");
+        }
+        if (!groupRepository.existsById(groupId)) {
+            throw new ResourceNotFoundException("Group not found");
+        }
+
+        return out -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<ExpenseSplit> rows = splitRepository.streamByExpenseGroupId(groupId)) {
+                    write(rows, csv, writer);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.flush();
+        };
+    }
+
+    private void write(Stream<ExpenseSplit> rows, boolean csv, Writer writer) throws IOException {
+        if (csv) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+
+        Expense current = null;
+        List<ExpenseSplit> splits = new ArrayList<>();
+        Iterator<ExpenseSplit> iterator = rows.iterator();
+        while (iterator.hasNext()) {
+            ExpenseSplit split = iterator.next();
+            if (current != null && current != split.getExpense()) {
+                writeExpense(current, splits, csv, writer);
+                splits.clear();
+            }
+            current = split.getExpense();
+            splits.add(split);
+        }
+        if (current != null) {
+            writeExpense(current, splits, csv, writer);
+        }
+    }
+
+    private void writeExpense(Expense expense, List<ExpenseSplit> splits, boolean csv, Writer writer) throws IOException {
+        if (csv) {
+            writeCsvRow(expense, splits, writer);
+        } else {
+            writeJsonLine(expense, splits, writer);
+        }
+
+        for (ExpenseSplit split : splits) {
+            entityManager.detach(split);
+        }
+        entityManager.detach(expense);
+    }
+
+    private void writeJsonLine(Expense expense, List<ExpenseSplit> splits, Writer writer) throws IOException {
+        Set<UUID> userIds = new HashSet<>();
+        userIds.add(expense.getPaidBy().getId());
+        splits.forEach(split -> userIds.add(split.getUser().getId()));
+        Map<UUID, UserDirectory.UserSummary> users = userDirectory.resolve(userIds);
+
+        List<ExpenseResponse.SplitDetail> splitDetails = new ArrayList<>(splits.size());
+        for (ExpenseSplit split : splits) {
+            splitDetails.add(ExpenseResponse.SplitDetail.builder()
+                    .userId(split.getUser().getId())
+                    .userName(UserDirectory.nameOf(users, split.getUser().getId()))
+                    .amountOwed(split.getAmountOwed())
+                    .percentage(split.getPercentage())
+                    .paid(split.getPaid())
+                    .build());
+        }
+
+        ExpenseResponse response = ExpenseResponse.builder()
+                .id(expense.getId())
+                .groupId(expense.getGroup().getId())
+                .description(expense.getDescription())
+                .totalAmount(expense.getTotalAmount())
+                .paidBy(expense.getPaidBy().getId())
+                .paidByName(UserDirectory.nameOf(users, expense.getPaidBy().getId()))
+                .splitType(expense.getSplitType())
+                .createdAt(expense.getCreatedAt())
+                .splits(splitDetails)
+                .build();
+        writer.write(objectMapper.writeValueAsString(response));
+        writer.write('\n');
+    }
+
+    /**
+     * Same columns as the import format, plus id and createdAt, so an export can be re-imported.
+     */
+    private static void writeCsvRow(Expense expense, List<ExpenseSplit> splits, Writer writer) throws IOException {
+        StringJoiner splitColumn = new StringJoiner(";");
+        for (ExpenseSplit split : splits) {
+            BigDecimal value = expense.getSplitType() == SplitType.PERCENTAGE && split.getPercentage() != null
+                    ? split.getPercentage()
+                    : split.getAmountOwed();
+            splitColumn.add(split.getUser().getId() + ":" + value.toPlainString());
+        }
+
+        writer.write(expense.getId().toString());
+        writer.write(',');
+        writer.write(expense.getCreatedAt().toString());
+        writer.write(',');
+        writer.write(csvField(expense.getDescription()));
+        writer.write(',');
+        writer.write(expense.getTotalAmount().toPlainString());
+        writer.write(',');
+        writer.write(expense.getPaidBy().getId().toString());
+        writer.write(',');
+        writer.write(expense.getSplitType().name());
+        writer.write(',');
+        writer.write(splitColumn.toString());
+        writer.write('\n');
+    }
+
+    private static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
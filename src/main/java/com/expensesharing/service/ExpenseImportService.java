@@ -0,0 +1,300 @@
+package com.expensesharing.service;
+
+import com.expensesharing.dto.request.CreateExpenseRequest;
+import com.expensesharing.dto.request.SplitRequest;
+import com.expensesharing.dto.response.ExpenseImportResponse;
+import com.expensesharing.entity.*;
+import com.expensesharing.exception.InvalidSplitException;
+import com.expensesharing.exception.ResourceNotFoundException;
+import com.expensesharing.exception.UnauthorizedException;
+import com.expensesharing.repository.GroupRepository;
+import com.expensesharing.security.AuthenticatedUser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk expense import from NDJSON (one CreateExpenseRequest per line) or CSV.
+ * The body is parsed line by line and written in chunks of expense.import.chunk-size,
+ * each chunk in its own transaction using JDBC batch inserts. The persistence context is
+ * cleared after every chunk, so memory stays flat however large the import is.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ExpenseImportService {
+
+    private static final List<String> CSV_COLUMNS = List.of("description", "totalAmount", "paidBy", "splitType", "splits");
+
+    private final GroupRepository groupRepository;
+    private final MembershipIndex membershipIndex;
+    private final SplitCalculator splitCalculator;
+    private final BalanceLedger balanceLedger;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${expense.import.chunk-size:500}")
+    private int chunkSize;
+
+    public ExpenseImportResponse importExpenses(UUID groupId, InputStream body, boolean csv,
+                                                Authentication authentication) throws IOException {
+        AuthenticatedUser requestingUser = AuthenticatedUser.from(authentication);
+
+        Set<UUID> members = membershipIndex.membersOf(groupId);
+        if (!members.contains(requestingUser.id()) && !requestingUser.isAdmin()) {
+            throw new UnauthorizedException("You are not a member of this group");
+        }
+        if (!groupRepository.existsById(groupId)) {
+            throw new ResourceNotFoundException("Group not found");
+        }
+
+        List<ExpenseImportResponse.RowResult> results = new ArrayList<>();
+        List<PendingRow> chunk = new ArrayList<>(chunkSize);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+
+        Map<String, Integer> columns = csv ? readCsvHeader(reader.readLine()) : null;
+        int rowNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            rowNumber++;
+            try {
+                CreateExpenseRequest request = csv
+                        ? parseCsvRow(line, columns)
+                        : objectMapper.readValue(line, CreateExpenseRequest.class);
+                chunk.add(validate(rowNumber, request, members));
+            } catch (InvalidSplitException | IllegalArgumentException | JsonProcessingException e) {
+                results.add(failure(rowNumber, e.getMessage()));
+            }
+
+            if (chunk.size() >= chunkSize) {
+                writeChunk(groupId, chunk, results);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            writeChunk(groupId, chunk, results);
+        }
+
+        results.sort(Comparator.comparingInt(ExpenseImportResponse.RowResult::getRow));
+        int imported = (int) results.stream().filter(ExpenseImportResponse.RowResult::isSuccess).count();
+
+        return ExpenseImportResponse.builder()
+                .imported(imported)
+                .failed(results.size() - imported)
+                .rows(results)
+                .build();
+    }
+
+    private PendingRow validate(int rowNumber, CreateExpenseRequest request, Set<UUID> members) {
+        Set<ConstraintViolation<CreateExpenseRequest>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            throw new IllegalArgumentException(violations.stream()
+                    .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", ")));
+        }
+
+        if (!members.contains(request.getPaidBy())) {
+            throw new IllegalArgumentException("Payer is not an active member of this group");
+        }
+        for (SplitRequest split : request.getSplits()) {
+            if (!members.contains(split.getUserId())) {
+                throw new IllegalArgumentException("User " + split.getUserId() + " is not an active member of this group");
+            }
+        }
+
+        Map<UUID, BigDecimal> amounts = splitCalculator.calculateSplits(
+                request.getSplitType(), request.getTotalAmount(), request.getSplits());
+        return new PendingRow(rowNumber, request, amounts);
+    }
+
+    private void writeChunk(UUID groupId, List<PendingRow> chunk, List<ExpenseImportResponse.RowResult> results) {
+        try {
+            List<ExpenseImportResponse.RowResult> written = transactionTemplate.execute(status -> {
+                Group group = entityManager.getReference(Group.class, groupId);
+                BalanceSheet deltas = new BalanceSheet();
+                List<ExpenseImportResponse.RowResult> rows = new ArrayList<>(chunk.size());
+
+                for (PendingRow row : chunk) {
+                    Expense expense = toEntity(group, row);
+                    entityManager.persist(expense);
+                    BalanceLedger.addExpense(deltas, expense);
+                    rows.add(ExpenseImportResponse.RowResult.builder()
+                            .row(row.rowNumber())
+                            .success(true)
+                            .expenseId(expense.getId())
+                            .build());
+                }
+
+                entityManager.flush();
+                balanceLedger.recordDeltas(groupId, deltas);
+                groupRepository.incrementVersion(groupId);
+                return rows;
+            });
+            results.addAll(written);
+        } catch (RuntimeException e) {
+            log.warn("Failed to import a chunk of {} expenses into group {}", chunk.size(), groupId, e);
+            for (PendingRow row : chunk) {
+                results.add(failure(row.rowNumber(), "Could not be saved: " + e.getMessage()));
+            }
+        } finally {
+            // With open-in-view the request's EntityManager outlives each chunk's transaction;
+            // without this it would keep every imported entity and dirty-check all of them per flush
+            entityManager.clear();
+        }
+    }
+
+    private Expense toEntity(Group group, PendingRow row) {
+        CreateExpenseRequest request = row.request();
+
+        Expense expense = new Expense();
+        expense.setGroup(group);
+        expense.setDescription(request.getDescription());
+        expense.setTotalAmount(request.getTotalAmount());
+        expense.setPaidBy(entityManager.getReference(User.class, request.getPaidBy()));
+        expense.setSplitType(request.getSplitType());
+
+        Map<UUID, BigDecimal> percentages = new HashMap<>();
+        if (request.getSplitType() == SplitType.PERCENTAGE) {
+            request.getSplits().forEach(s -> percentages.put(s.getUserId(), s.getPercentage()));
+        }
+
+        List<ExpenseSplit> splits = new ArrayList<>(row.amounts().size());
+        for (Map.Entry<UUID, BigDecimal> entry : row.amounts().entrySet()) {
+            ExpenseSplit split = new ExpenseSplit();
+            split.setExpense(expense);
+            split.setUser(entityManager.getReference(User.class, entry.getKey()));
+            split.setAmountOwed(entry.getValue());
+            split.setPaid(entry.getKey().equals(request.getPaidBy()));
+            split.setPercentage(percentages.get(entry.getKey()));
+            splits.add(split);
+        }
+        expense.setSplits(splits);
+        return expense;
+    }
+
+    private static Map<String, Integer> readCsvHeader(String header) {
+        if (header == null) {
+            return Map.of();
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        List<String> names = splitCsvLine(header);
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim(), i);
+        }
+        for (String column : CSV_COLUMNS) {
+            if (!columns.containsKey(column)) {
+                throw new IllegalArgumentException("CSV header must contain the columns " + CSV_COLUMNS);
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * The splits column is a ';'-separated list of userId or userId:value entries, where value is
+     * the exact amount for EXACT splits and the percentage for PERCENTAGE splits.
+     */
+    private static CreateExpenseRequest parseCsvRow(String line, Map<String, Integer> columns) {
+        List<String> fields = splitCsvLine(line);
+        if (fields.size() < columns.size()) {
+            throw new IllegalArgumentException("Expected " + columns.size() + " columns, got " + fields.size());
+        }
+
+        SplitType splitType = SplitType.valueOf(field(fields, columns, "splitType").toUpperCase());
+        List<SplitRequest> splits = new ArrayList<>();
+        for (String entry : field(fields, columns, "splits").split(";")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] parts = entry.trim().split(":", 2);
+            SplitRequest split = new SplitRequest();
+            split.setUserId(UUID.fromString(parts[0].trim()));
+            if (parts.length > 1 && !parts[1].isBlank()) {
+                BigDecimal value = new BigDecimal(parts[1].trim());
+                if (splitType == SplitType.PERCENTAGE) {
+                    split.setPercentage(value);
+                } else {
+                    split.setAmount(value);
+                }
+            }
+            splits.add(split);
+        }
+
+        return CreateExpenseRequest.builder()
+                .description(field(fields, columns, "description"))
+                .totalAmount(new BigDecimal(field(fields, columns, "totalAmount")))
+                .paidBy(UUID.fromString(field(fields, columns, "paidBy")))
+                .splitType(splitType)
+                .splits(splits)
+                .build();
+    }
+
+    private static String field(List<String> fields, Map<String, Integer> columns, String name) {
+        return fields.get(columns.get(name)).trim();
+    }
+
+    /**
+     * RFC 4180 field splitting for a single line: quoted fields may contain commas and "" escapes.
+     */
+    private static List<String> splitCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        fields.add(current.toString());
+        return fields;
+    }
+
+    private static ExpenseImportResponse.RowResult failure(int rowNumber, String error) {
+        return ExpenseImportResponse.RowResult.builder()
+                .row(rowNumber)
+                .success(false)
+                .error(error)
+                .build();
+    }
+
+    private record PendingRow(int rowNumber, CreateExpenseRequest request, Map<UUID, BigDecimal> amounts) {
+    }
+}
@@ -1,16 +1,23 @@
 package com.expensesharing.service;
 
 import com.expensesharing.dto.request.CreateExpenseRequest;
+import com.expensesharing.dto.request.ExpenseSearchRequest;
+import com.expensesharing.dto.request.SplitRequest;
+import com.expensesharing.dto.response.ExpensePageResponse;
 import com.expensesharing.dto.response.ExpenseResponse;
 import com.expensesharing.entity.*;
+import com.expensesharing.exception.InvalidSplitException;
 import com.expensesharing.exception.ResourceNotFoundException;
 import com.expensesharing.exception.UnauthorizedException;
 import com.expensesharing.repository.ExpenseRepository;
-import com.expensesharing.repository.GroupMemberRepository;
 import com.expensesharing.repository.GroupRepository;
 import com.expensesharing.repository.UserRepository;
+import com.expensesharing.repository.ExpenseSplitRepository;
+import com.expensesharing.repository.projection.ExpenseRow;
+import com.expensesharing.repository.projection.SplitRow;
+import com.expensesharing.security.AuthenticatedUser;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -24,117 +31,328 @@ import java.util.stream.Collectors;
 public class ExpenseService {
 
     private final ExpenseRepository expenseRepository;
+    private final ExpenseSplitRepository expenseSplitRepository;
     private final GroupRepository groupRepository;
     private final UserRepository userRepository;
-    private final GroupMemberRepository groupMemberRepository;
+    private final MembershipIndex membershipIndex;
     private final SplitCalculator splitCalculator;
+    private final BalanceLedger balanceLedger;
+    private final UserDirectory userDirectory;
 
     public ExpenseResponse createExpense(CreateExpenseRequest request, Authentication authentication) {
-        User requestingUser = userRepository.findByEmail(authentication.getName())
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        AuthenticatedUser requestingUser = AuthenticatedUser.from(authentication);
 
-        // Check if user is a member of the group
-        if (!isMemberOfGroup(request.getGroupId(), requestingUser.getId()) && requestingUser.getRole() != Role.ADMIN) {
-            throw new UnauthorizedException("You are not a member of this group");
-        }
+        checkParticipants(request.getGroupId(), requestingUser, request);
 
-        Group group = groupRepository.findById(request.getGroupId())
-                .orElseThrow(() -> new ResourceNotFoundException("Group not found"));
-
-        User payer = userRepository.findById(request.getPaidBy())
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        // Membership rows reference the group and users, so references are enough from here on
+        Group group = groupRepository.getReferenceById(request.getGroupId());
 
         Expense expense = new Expense();
         expense.setGroup(group);
         expense.setDescription(request.getDescription());
         expense.setTotalAmount(request.getTotalAmount());
-        expense.setPaidBy(payer);
+        expense.setPaidBy(userRepository.getReferenceById(request.getPaidBy()));
         expense.setSplitType(request.getSplitType());
 
-        Map<UUID, BigDecimal> splits = calculateSplits(request);
+        Map<UUID, BigDecimal> splits = splitCalculator.calculateSplits(
+                request.getSplitType(), request.getTotalAmount(), request.getSplits());
 
-        List<ExpenseSplit> expenseSplits = new ArrayList<>();
-        for (Map.Entry<UUID, BigDecimal> entry : splits.entrySet()) {
-            User user = userRepository.findById(entry.getKey())
-                    .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        Map<UUID, BigDecimal> percentages = new HashMap<>();
+        if (request.getSplitType() == SplitType.PERCENTAGE) {
+            request.getSplits().forEach(s -> percentages.put(s.getUserId(), s.getPercentage()));
+        }
 
+        List<ExpenseSplit> expenseSplits = new ArrayList<>(splits.size());
+        for (Map.Entry<UUID, BigDecimal> entry : splits.entrySet()) {
             ExpenseSplit split = new ExpenseSplit();
             split.setExpense(expense);
-            split.setUser(user);
+            split.setUser(userRepository.getReferenceById(entry.getKey()));
             split.setAmountOwed(entry.getValue());
-            split.setPaid(user.getId().equals(payer.getId()));
-
-            if (request.getSplitType() == SplitType.PERCENTAGE) {
-                split.setPercentage(request.getSplits().stream()
-                        .filter(s -> s.getUserId().equals(entry.getKey()))
-                        .findFirst()
-                        .map(s -> s.getPercentage())
-                        .orElse(null));
-            }
-
+            split.setPaid(entry.getKey().equals(request.getPaidBy()));
+            split.setPercentage(percentages.get(entry.getKey()));
             expenseSplits.add(split);
         }
 
         expense.setSplits(expenseSplits);
         Expense savedExpense = expenseRepository.save(expense);
+        balanceLedger.recordExpense(savedExpense);
+        groupRepository.incrementVersion(request.getGroupId());
 
         return mapToResponse(savedExpense);
     }
 
-    private Map<UUID, BigDecimal> calculateSplits(CreateExpenseRequest request) {
-        return switch (request.getSplitType()) {
-            case EQUAL -> {
-                List<UUID> participants = request.getSplits().stream()
-                        .map(s -> s.getUserId())
-                        .collect(Collectors.toList());
-                yield splitCalculator.calculateEqualSplit(request.getTotalAmount(), participants);
+    /**
+     * Replaces the expense's fields and splits. Only splits whose user or amount changed are
+     * written, and only the old-to-new difference is applied to the group's balances.
+     */
+    public ExpenseResponse updateExpense(UUID groupId, UUID expenseId, CreateExpenseRequest request,
+                                         Authentication authentication) {
+        AuthenticatedUser requestingUser = AuthenticatedUser.from(authentication);
+
+        Expense expense = expenseRepository.findByIdForUpdate(expenseId)
+                .filter(e -> e.getGroup().getId().equals(groupId))
+                .orElseThrow(() -> new ResourceNotFoundException("Expense not found"));
+        checkParticipants(groupId, requestingUser, request);
+
+        Map<UUID, BigDecimal> amounts = splitCalculator.calculateSplits(
+                request.getSplitType(), request.getTotalAmount(), request.getSplits());
+        Map<UUID, BigDecimal> percentages = new HashMap<>();
+        if (request.getSplitType() == SplitType.PERCENTAGE) {
+            request.getSplits().forEach(s -> percentages.put(s.getUserId(), s.getPercentage()));
+        }
+
+        BalanceSheet deltas = new BalanceSheet(expense.getSplits().size() + amounts.size() + 2);
+        BalanceLedger.subtractExpense(deltas, expense);
+
+        expense.setDescription(request.getDescription());
+        expense.setTotalAmount(request.getTotalAmount());
+        expense.setPaidBy(userRepository.getReferenceById(request.getPaidBy()));
+        expense.setSplitType(request.getSplitType());
+
+        // Update kept splits in place, drop the ones no longer present (orphan removal), add new ones
+        Map<UUID, BigDecimal> remaining = new HashMap<>(amounts);
+        Iterator<ExpenseSplit> existing = expense.getSplits().iterator();
+        while (existing.hasNext()) {
+            ExpenseSplit split = existing.next();
+            BigDecimal amount = remaining.remove(split.getUser().getId());
+            if (amount == null) {
+                existing.remove();
+                continue;
             }
-            case EXACT -> splitCalculator.calculateExactSplit(request.getTotalAmount(), request.getSplits());
-            case PERCENTAGE -> splitCalculator.calculatePercentageSplit(request.getTotalAmount(), request.getSplits());
-        };
+            updateSplit(split, amount, percentages, request.getPaidBy());
+        }
+        for (Map.Entry<UUID, BigDecimal> entry : remaining.entrySet()) {
+            ExpenseSplit split = new ExpenseSplit();
+            split.setExpense(expense);
+            split.setUser(userRepository.getReferenceById(entry.getKey()));
+            updateSplit(split, entry.getValue(), percentages, request.getPaidBy());
+            expense.getSplits().add(split);
+        }
+
+        BalanceLedger.addExpense(deltas, expense);
+        balanceLedger.recordCorrection(groupId, expense.getCreatedAt(), deltas);
+        groupRepository.incrementVersion(groupId);
+
+        return mapToResponse(expense);
     }
 
-    public List<ExpenseResponse> getGroupExpenses(UUID groupId, Pageable pageable, Authentication authentication) {
-        User requestingUser = userRepository.findByEmail(authentication.getName())
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+    public void deleteExpense(UUID groupId, UUID expenseId, Authentication authentication) {
+        AuthenticatedUser requestingUser = AuthenticatedUser.from(authentication);
+
+        Expense expense = expenseRepository.findByIdForUpdate(expenseId)
+                .filter(e -> e.getGroup().getId().equals(groupId))
+                .orElseThrow(() -> new ResourceNotFoundException("Expense not found"));
+
+        if (!membershipIndex.isMember(groupId, requestingUser.id()) && !requestingUser.isAdmin()) {
+            throw new UnauthorizedException("You are not a member of this group");
+        }
+
+        BalanceSheet deltas = new BalanceSheet(expense.getSplits().size() + 1);
+        BalanceLedger.subtractExpense(deltas, expense);
+
+        expenseRepository.delete(expense);
+        expenseRepository.flush();
+        balanceLedger.recordCorrection(groupId, expense.getCreatedAt(), deltas);
+        groupRepository.incrementVersion(groupId);
+    }
+
+    /**
+     * Checks the requester, the payer and every participant against the group's active members.
+     */
+    private void checkParticipants(UUID groupId, AuthenticatedUser requestingUser, CreateExpenseRequest request) {
+        Set<UUID> members = membershipIndex.membersOf(groupId);
 
         // Check if user is a member of the group
-        if (!isMemberOfGroup(groupId, requestingUser.getId()) && requestingUser.getRole() != Role.ADMIN) {
+        if (!members.contains(requestingUser.id()) && !requestingUser.isAdmin()) {
             throw new UnauthorizedException("You are not a member of this group");
         }
+        if (!members.contains(request.getPaidBy())) {
+            throw new InvalidSplitException("Payer is not an active member of this group");
+        }
+        for (SplitRequest split : request.getSplits()) {
+            if (!members.contains(split.getUserId())) {
+                throw new InvalidSplitException("User " + split.getUserId() + " is not an active member of this group");
+            }
+        }
+    }
 
-        return expenseRepository.findByGroupId(groupId, pageable)
-                .stream()
-                .map(this::mapToResponse)
-                .collect(Collectors.toList());
+    private static void updateSplit(ExpenseSplit split, BigDecimal amount, Map<UUID, BigDecimal> percentages, UUID paidBy) {
+        UUID userId = split.getUser().getId();
+        if (split.getAmountOwed() == null || split.getAmountOwed().compareTo(amount) != 0) {
+            split.setAmountOwed(amount);
+        }
+        split.setPercentage(percentages.get(userId));
+        split.setPaid(userId.equals(paidBy));
     }
 
+    /**
+     * Newest-first page of the group's expenses starting after cursor (null for the first page).
+     */
+    @Transactional(readOnly = true)
+    public ExpensePageResponse getGroupExpenses(UUID groupId, String cursor, int size, Authentication authentication) {
+        AuthenticatedUser requestingUser = AuthenticatedUser.from(authentication);
+
+        // Check if user is a member of the group
+        if (!membershipIndex.isMember(groupId, requestingUser.id()) && !requestingUser.isAdmin()) {
+            throw new UnauthorizedException("You are not a member of this group");
+        }
+
+        // One extra row tells whether there is a next page without a count query
+        Limit limit = Limit.of(size + 1);
+        List<UUID> ids;
+        if (cursor == null || cursor.isBlank()) {
+            ids = expenseRepository.findFirstPageIdsByGroupId(groupId, limit);
+        } else {
+            KeysetCursor after = KeysetCursor.decode(cursor);
+            ids = expenseRepository.findPageIdsByGroupIdBefore(groupId, after.createdAt(), after.id(), limit);
+        }
+        return toPage(ids, size);
+    }
+
+    /**
+     * Newest-first page of the group's expenses matching every given filter, keyset-paged like getGroupExpenses.
+     */
+    @Transactional(readOnly = true)
+    public ExpensePageResponse searchExpenses(UUID groupId, ExpenseSearchRequest filters, String cursor, int size,
+                                              Authentication authentication) {
+        AuthenticatedUser requestingUser = AuthenticatedUser.from(authentication);
+
+        if (!membershipIndex.isMember(groupId, requestingUser.id()) && !requestingUser.isAdmin()) {
+            throw new UnauthorizedException("You are not a member of this group");
+        }
+
+        KeysetCursor after = cursor == null || cursor.isBlank() ? null : KeysetCursor.decode(cursor);
+        List<UUID> ids = expenseRepository.searchIds(groupId, filters,
+                after != null ? after.createdAt() : null,
+                after != null ? after.id() : null,
+                size + 1);
+        return toPage(ids, size);
+    }
+
+    /**
+     * ids holds up to size + 1 entries; the extra one only signals that a next page exists.
+     */
+    private ExpensePageResponse toPage(List<UUID> ids, int size) {
+        boolean hasNext = ids.size() > size;
+        List<ExpenseResponse> expenses = loadResponses(hasNext ? ids.subList(0, size) : ids);
+        String next = null;
+        if (hasNext && !expenses.isEmpty()) {
+            ExpenseResponse last = expenses.get(expenses.size() - 1);
+            next = new KeysetCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+
+        return ExpensePageResponse.builder()
+                .items(expenses)
+                .next(next)
+                .build();
+    }
+
+    /**
+     * Current version of the group's expense list, after the same membership check as getGroupExpenses.
+     */
+    @Transactional(readOnly = true)
+    public long getGroupExpensesVersion(UUID groupId, Authentication authentication) {
+        AuthenticatedUser requestingUser = AuthenticatedUser.from(authentication);
+
+        if (!membershipIndex.isMember(groupId, requestingUser.id()) && !requestingUser.isAdmin()) {
+            throw new UnauthorizedException("You are not a member of this group");
+        }
+
+        return groupRepository.findVersionById(groupId)
+                .orElseThrow(() -> new ResourceNotFoundException("Group not found"));
+    }
+
+    @Transactional(readOnly = true)
     public ExpenseResponse getExpense(UUID expenseId, Authentication authentication) {
-        User requestingUser = userRepository.findByEmail(authentication.getName())
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        AuthenticatedUser requestingUser = AuthenticatedUser.from(authentication);
 
-        Expense expense = expenseRepository.findById(expenseId)
-                .orElseThrow(() -> new ResourceNotFoundException("Expense not found"));
+        List<ExpenseResponse> found = loadResponses(List.of(expenseId));
+        if (found.isEmpty()) {
+            throw new ResourceNotFoundException("Expense not found");
+        }
+        ExpenseResponse expense = found.get(0);
 
         // Check if user is a member of the group
-        if (!isMemberOfGroup(expense.getGroup().getId(), requestingUser.getId()) && requestingUser.getRole() != Role.ADMIN) {
+        if (!membershipIndex.isMember(expense.getGroupId(), requestingUser.id()) && !requestingUser.isAdmin()) {
             throw new UnauthorizedException("You are not a member of this group");
         }
 
-        return mapToResponse(expense);
+        return expense;
     }
 
-    private boolean isMemberOfGroup(UUID groupId, UUID userId) {
-        return groupMemberRepository.findByGroupIdAndUserId(groupId, userId)
-                .map(GroupMember::getIsActive)
-                .orElse(false);
+    /**
+     * Builds responses for the given expenses, in the order of ids, from two projection queries
+     * (expense rows and split rows) without loading managed entities. Missing ids are skipped.
+     */
+    private List<ExpenseResponse> loadResponses(List<UUID> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        Map<UUID, ExpenseRow> rows = new HashMap<>(ids.size() * 4 / 3 + 1);
+        for (ExpenseRow row : expenseRepository.findRowsByIdIn(ids)) {
+            rows.put(row.id(), row);
+        }
+        Map<UUID, List<SplitRow>> splitsByExpense = new HashMap<>(ids.size() * 4 / 3 + 1);
+        Set<UUID> userIds = new HashSet<>();
+        for (ExpenseRow row : rows.values()) {
+            userIds.add(row.paidBy());
+        }
+        for (SplitRow split : expenseSplitRepository.findRowsByExpenseIdIn(rows.keySet())) {
+            splitsByExpense.computeIfAbsent(split.expenseId(), id -> new ArrayList<>()).add(split);
+            userIds.add(split.userId());
+        }
+        Map<UUID, UserDirectory.UserSummary> users = userDirectory.resolve(userIds);
+
+        List<ExpenseResponse> responses = new ArrayList<>(ids.size());
+        for (UUID id : ids) {
+            ExpenseRow row = rows.get(id);
+            if (row == null) {
+                continue;
+            }
+            List<ExpenseResponse.SplitDetail> splitDetails = splitsByExpense.getOrDefault(id, List.of()).stream()
+                    .map(split -> ExpenseResponse.SplitDetail.builder()
+                            .userId(split.userId())
+                            .userName(UserDirectory.nameOf(users, split.userId()))
+                            .amountOwed(split.amountOwed())
+                            .percentage(split.percentage())
+                            .paid(split.paid())
+                            .build())
+                    .collect(Collectors.toList());
+
+            responses.add(ExpenseResponse.builder()
+                    .id(row.id())
+                    .groupId(row.groupId())
+                    .description(row.description())
+                    .totalAmount(row.totalAmount())
+                    .paidBy(row.paidBy())
+                    .paidByName(UserDirectory.nameOf(users, row.paidBy()))
+                    .splitType(row.splitType())
+                    .createdAt(row.createdAt())
+                    .splits(splitDetails)
+                    .build());
+        }
+        return responses;
     }
 
     private ExpenseResponse mapToResponse(Expense expense) {
+        return mapToResponse(expense, userDirectory.resolve(referencedUserIds(List.of(expense))));
+    }
+
+    private Set<UUID> referencedUserIds(List<Expense> expenses) {
+        Set<UUID> userIds = new HashSet<>();
+        for (Expense expense : expenses) {
+            userIds.add(expense.getPaidBy().getId());
+            expense.getSplits().forEach(split -> userIds.add(split.getUser().getId()));
+        }
+        return userIds;
+    }
+
+    private ExpenseResponse mapToResponse(Expense expense, Map<UUID, UserDirectory.UserSummary> users) {
         List<ExpenseResponse.SplitDetail> splitDetails = expense.getSplits().stream()
                 .map(split -> ExpenseResponse.SplitDetail.builder()
                         .userId(split.getUser().getId())
-                        .userName(split.getUser().getName())
+                        .userName(UserDirectory.nameOf(users, split.getUser().getId()))
                         .amountOwed(split.getAmountOwed())
                         .percentage(split.getPercentage())
                         .paid(split.getPaid())
@@ -147,7 +365,7 @@ public class ExpenseService {
                 .description(expense.getDescription())
                 .totalAmount(expense.getTotalAmount())
                 .paidBy(expense.getPaidBy().getId())
-                .paidByName(expense.getPaidBy().getName())
+                .paidByName(UserDirectory.nameOf(users, expense.getPaidBy().getId()))
                 .splitType(expense.getSplitType())
                 .createdAt(expense.getCreatedAt())
                 .splits(splitDetails)
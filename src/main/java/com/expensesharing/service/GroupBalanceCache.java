@@ -0,0 +1,106 @@
+package com.expensesharing.service;
+
+import com.expensesharing.dto.response.SimplifiedBalanceResponse;
+import com.expensesharing.event.GroupBalancesChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Read-through cache of simplified group balances, bounded by size and TTL.
+ * Every entry carries the group version it was computed at and is only served to a reader of
+ * that same version, so the body always matches the ETag built from it. That also guards fills:
+ * a load that read before a concurrent write committed is stamped with the old version, so even
+ * if it lands after the invalidation it is never served to a reader of the new one, and it never
+ * replaces an entry of a newer version. Entries are also dropped once a transaction that changed
+ * the group's balances commits.
+ */
+@Component
+public class GroupBalanceCache {
+
+    private final Map<Key, Entry> entries;
+    private final long ttlNanos;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    public GroupBalanceCache(MeterRegistry meterRegistry,
+                             @Value("${cache.group-balances.max-size:10000}") int maxSize,
+                             @Value("${cache.group-balances.ttl:PT5M}") Duration ttl) {
+        this.ttlNanos = ttl.toNanos();
+        this.hits = meterRegistry.counter("cache.group-balances.hits");
+        this.misses = meterRegistry.counter("cache.group-balances.misses");
+        this.evictions = meterRegistry.counter("cache.group-balances.evictions");
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        meterRegistry.gaugeMapSize("cache.group-balances.size", List.of(), entries);
+    }
+
+    /**
+     * @param version the group version the caller read, in the same snapshot the loader reads from
+     */
+    public SimplifiedBalanceResponse get(UUID groupId, boolean optimal, long version,
+                                         Supplier<SimplifiedBalanceResponse> loader) {
+        Key key = new Key(groupId, optimal);
+
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                boolean fresh = System.nanoTime() - entry.loadedAt < ttlNanos;
+                if (fresh && entry.version == version) {
+                    hits.increment();
+                    return entry.value;
+                }
+                if (!fresh || entry.version < version) {
+                    entries.remove(key);
+                    evictions.increment();
+                }
+            }
+        }
+
+        misses.increment();
+        SimplifiedBalanceResponse value = loader.get();
+
+        synchronized (entries) {
+            // A reader of a newer version may have filled the key while we were loading
+            Entry current = entries.get(key);
+            if (current == null || current.version <= version) {
+                entries.put(key, new Entry(value, version, System.nanoTime()));
+            }
+        }
+        return value;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onBalancesChanged(GroupBalancesChangedEvent event) {
+        invalidate(event.groupId());
+    }
+
+    public void invalidate(UUID groupId) {
+        synchronized (entries) {
+            entries.remove(new Key(groupId, false));
+            entries.remove(new Key(groupId, true));
+        }
+    }
+
+    private record Key(UUID groupId, boolean optimal) {
+    }
+
+    private record Entry(SimplifiedBalanceResponse value, long version, long loadedAt) {
+    }
+}
@@ -2,24 +2,29 @@ package com.expensesharing.service;
 
 import com.expensesharing.dto.request.AddMemberRequest;
 import com.expensesharing.dto.request.CreateGroupRequest;
+import com.expensesharing.dto.response.GroupPageResponse;
 import com.expensesharing.dto.response.GroupResponse;
 import com.expensesharing.dto.response.UserResponse;
 import com.expensesharing.entity.Group;
 import com.expensesharing.entity.GroupMember;
-import com.expensesharing.entity.Role;
 import com.expensesharing.entity.User;
+import com.expensesharing.event.GroupMembershipChangedEvent;
 import com.expensesharing.exception.ResourceNotFoundException;
 import com.expensesharing.exception.UnauthorizedException;
 import com.expensesharing.repository.GroupMemberRepository;
 import com.expensesharing.repository.GroupRepository;
 import com.expensesharing.repository.UserRepository;
+import com.expensesharing.repository.projection.GroupRow;
+import com.expensesharing.repository.projection.MembershipRow;
+import com.expensesharing.security.AuthenticatedUser;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
-import java.util.UUID;
+import java.util.*;
 import java.util.stream.Collectors;
 
 @Service
@@ -30,6 +35,9 @@ public class GroupService {
     private final GroupRepository groupRepository;
     private final UserRepository userRepository;
     private final GroupMemberRepository groupMemberRepository;
+    private final UserDirectory userDirectory;
+    private final MembershipIndex membershipIndex;
+    private final ApplicationEventPublisher eventPublisher;
 
     public GroupResponse createGroup(CreateGroupRequest request) {
         User creator = userRepository.findById(request.getCreatedBy())
@@ -54,7 +62,7 @@ public class GroupService {
             }
         }
 
-        return getGroupResponse(savedGroup.getId());
+        return getGroupResponse(savedGroup.getId(), groupMemberRepository.findActiveUserIdsByGroupId(savedGroup.getId()));
     }
 
     private void addMemberToGroupInternal(Group group, User user) {
@@ -64,29 +72,27 @@ public class GroupService {
             member.setUser(user);
             member.setIsActive(true);
             groupMemberRepository.save(member);
+            eventPublisher.publishEvent(new GroupMembershipChangedEvent(group.getId(), user.getId(), true));
         }
     }
 
+    @Transactional(readOnly = true)
     public GroupResponse getGroup(UUID groupId, Authentication authentication) {
-        User requestingUser = userRepository.findByEmail(authentication.getName())
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        AuthenticatedUser requestingUser = AuthenticatedUser.from(authentication);
 
         // Check if user is a member of the group OR is an admin
-        if (!isMemberOfGroup(groupId, requestingUser.getId()) && requestingUser.getRole() != Role.ADMIN) {
+        if (!membershipIndex.isMember(groupId, requestingUser.id()) && !requestingUser.isAdmin()) {
             throw new UnauthorizedException("You are not a member of this group");
         }
 
-        Group group = groupRepository.findById(groupId)
-                .orElseThrow(() -> new ResourceNotFoundException("Group not found with id: " + groupId));
-        return getGroupResponse(groupId);
+        return getGroupResponse(groupId, membershipIndex.membersOf(groupId));
     }
 
     public GroupResponse addMemberToGroup(UUID groupId, AddMemberRequest request, Authentication authentication) {
-        User requestingUser = userRepository.findByEmail(authentication.getName())
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        AuthenticatedUser requestingUser = AuthenticatedUser.from(authentication);
 
         // Only members can add other members
-        if (!isMemberOfGroup(groupId, requestingUser.getId()) && requestingUser.getRole() != Role.ADMIN) {
+        if (!membershipIndex.isMember(groupId, requestingUser.id()) && !requestingUser.isAdmin()) {
             throw new UnauthorizedException("You are not a member of this group");
         }
 
@@ -105,16 +111,17 @@ public class GroupService {
         member.setUser(user);
         member.setIsActive(true);
         groupMemberRepository.save(member);
+        groupRepository.incrementVersion(groupId);
+        eventPublisher.publishEvent(new GroupMembershipChangedEvent(groupId, user.getId(), true));
 
-        return getGroupResponse(groupId);
+        return getGroupResponse(groupId, groupMemberRepository.findActiveUserIdsByGroupId(groupId));
     }
 
     public GroupResponse removeMemberFromGroup(UUID groupId, UUID userId, Authentication authentication) {
-        User requestingUser = userRepository.findByEmail(authentication.getName())
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        AuthenticatedUser requestingUser = AuthenticatedUser.from(authentication);
 
         // Only members can remove other members
-        if (!isMemberOfGroup(groupId, requestingUser.getId()) && requestingUser.getRole() != Role.ADMIN) {
+        if (!membershipIndex.isMember(groupId, requestingUser.id()) && !requestingUser.isAdmin()) {
             throw new UnauthorizedException("You are not a member of this group");
         }
 
@@ -130,61 +137,108 @@ public class GroupService {
 
         member.setIsActive(false);
         groupMemberRepository.save(member);
+        groupRepository.incrementVersion(groupId);
+        eventPublisher.publishEvent(new GroupMembershipChangedEvent(groupId, userId, false));
 
-        return getGroupResponse(groupId);
+        return getGroupResponse(groupId, groupMemberRepository.findActiveUserIdsByGroupId(groupId));
     }
 
-    public List<GroupResponse> getUserGroups(Authentication authentication) {
-        User requestingUser = userRepository.findByEmail(authentication.getName())
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+    /**
+     * Groups of the requesting user, newest first, as a single page; cursor and size are ignored.
+     * Admins get every group instead, keyset-paged from cursor (null for the first page) like expenses.
+     */
+    @Transactional(readOnly = true)
+    public GroupPageResponse getUserGroups(String cursor, int size, Authentication authentication) {
+        AuthenticatedUser requestingUser = AuthenticatedUser.from(authentication);
+
+        // Members only see the groups they belong to, few enough for one page
+        if (!requestingUser.isAdmin()) {
+            return GroupPageResponse.builder()
+                    .items(getGroupResponses(membershipIndex.groupsOf(requestingUser.id())))
+                    .build();
+        }
 
-        // If admin, return all groups
-        if (requestingUser.getRole() == Role.ADMIN) {
-            return groupRepository.findAll()
-                    .stream()
-                    .map(group -> getGroupResponse(group.getId()))
-                    .collect(Collectors.toList());
+        // If admin, return all groups; one extra row tells whether there is a next page
+        Limit limit = Limit.of(size + 1);
+        List<UUID> ids;
+        if (cursor == null || cursor.isBlank()) {
+            ids = groupRepository.findFirstPageIdsNewestFirst(limit);
+        } else {
+            KeysetCursor after = KeysetCursor.decode(cursor);
+            ids = groupRepository.findPageIdsNewestFirstBefore(after.createdAt(), after.id(), limit);
         }
 
-        // Otherwise, return only groups the user is a member of
-        return groupMemberRepository.findActiveByUserId(requestingUser.getId())
-                .stream()
-                .map(gm -> getGroupResponse(gm.getGroup().getId()))
-                .collect(Collectors.toList());
+        boolean hasNext = ids.size() > size;
+        List<GroupResponse> groups = getGroupResponses(hasNext ? ids.subList(0, size) : ids);
+        String next = null;
+        if (hasNext && !groups.isEmpty()) {
+            GroupResponse last = groups.get(groups.size() - 1);
+            next = new KeysetCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        return GroupPageResponse.builder()
+                .items(groups)
+                .next(next)
+                .build();
     }
 
-    private boolean isMemberOfGroup(UUID groupId, UUID userId) {
-        return groupMemberRepository.findByGroupIdAndUserId(groupId, userId)
-                .map(GroupMember::getIsActive)
-                .orElse(false);
+    /**
+     * Builds the responses of many groups with one query for the groups, one for their active
+     * members and at most one for the users not in the UserDirectory cache.
+     */
+    private List<GroupResponse> getGroupResponses(Collection<UUID> groupIds) {
+        if (groupIds.isEmpty()) {
+            return List.of();
+        }
+
+        List<GroupRow> groups = groupRepository.findRowsByIdIn(groupIds);
+        Map<UUID, Set<UUID>> membersByGroup = new HashMap<>(groups.size() * 4 / 3 + 1);
+        Set<UUID> userIds = new HashSet<>();
+        for (MembershipRow row : groupMemberRepository.findActiveByGroupIdIn(groupIds)) {
+            membersByGroup.computeIfAbsent(row.groupId(), id -> new HashSet<>()).add(row.userId());
+            userIds.add(row.userId());
+        }
+        groups.forEach(group -> userIds.add(group.createdBy()));
+        Map<UUID, UserDirectory.UserSummary> users = userDirectory.resolve(userIds);
+
+        return groups.stream()
+                .map(group -> toResponse(group, membersByGroup.getOrDefault(group.id(), Set.of()), users))
+                .collect(Collectors.toList());
     }
 
-    private GroupResponse getGroupResponse(UUID groupId) {
-        Group group = groupRepository.findById(groupId)
-                .orElseThrow(() -> new ResourceNotFoundException("Group not found"));
+    /**
+     * Writers pass the member ids read from the database, since the MembershipIndex only
+     * reflects their own changes once the transaction commits.
+     */
+    private GroupResponse getGroupResponse(UUID groupId, Set<UUID> memberIds) {
+        GroupRow group = groupRepository.findRowById(groupId)
+                .orElseThrow(() -> new ResourceNotFoundException("Group not found with id: " + groupId));
+
+        Set<UUID> userIds = new HashSet<>(memberIds);
+        userIds.add(group.createdBy());
+        return toResponse(group, memberIds, userDirectory.resolve(userIds));
+    }
 
-        List<UserResponse> members = groupMemberRepository
-                .findByGroupIdAndIsActive(group.getId(), true)
-                .stream()
-                .map(gm -> {
-                    User user = gm.getUser();
-                    return UserResponse.builder()
-                            .id(user.getId())
-                            .name(user.getName())
-                            .email(user.getEmail())
-                            .phone(user.getPhone())
-                            .createdAt(user.getCreatedAt())
-                            .build();
-                })
+    private static GroupResponse toResponse(GroupRow group, Set<UUID> memberIds, Map<UUID, UserDirectory.UserSummary> users) {
+        UUID creatorId = group.createdBy();
+        List<UserResponse> members = memberIds.stream()
+                .map(users::get)
+                .filter(Objects::nonNull)
+                .map(user -> UserResponse.builder()
+                        .id(user.getId())
+                        .name(user.getName())
+                        .email(user.getEmail())
+                        .phone(user.getPhone())
+                        .createdAt(user.getCreatedAt())
+                        .build())
                 .collect(Collectors.toList());
 
         return GroupResponse.builder()
-                .id(group.getId())
-                .name(group.getName())
-                .description(group.getDescription())
-                .createdBy(group.getCreatedBy().getId())
-                .createdByName(group.getCreatedBy().getName())
-                .createdAt(group.getCreatedAt())
+                .id(group.id())
+                .name(group.name())
+                .description(group.description())
+                .createdBy(creatorId)
+                .createdByName(UserDirectory.nameOf(users, creatorId))
+                .createdAt(group.createdAt())
                 .members(members)
                 .build();
     }
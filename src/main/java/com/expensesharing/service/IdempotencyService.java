@@ -0,0 +1,214 @@
+package com.expensesharing.service;
+
+import com.expensesharing.entity.IdempotencyRecord;
+import com.expensesharing.exception.IdempotencyKeyConflictException;
+import com.expensesharing.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Runs create requests carrying an Idempotency-Key at most once per scope and key.
+ * The key is claimed in the same transaction as the write it guards, so a retry either sees the
+ * committed response or runs the write itself. Recent responses are also held in a bounded LRU,
+ * and concurrent duplicates in this instance wait for the first one instead of racing it.
+ */
+@Slf4j
+@Service
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private final IdempotencyRecordRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Duration retention;
+    private final Map<String, StoredResponse> recent;
+    private final ConcurrentHashMap<String, CompletableFuture<StoredResponse>> inFlight = new ConcurrentHashMap<>();
+
+    public IdempotencyService(IdempotencyRecordRepository repository,
+                              TransactionTemplate transactionTemplate,
+                              ObjectMapper objectMapper,
+                              @Value("${idempotency.retention:PT24H}") Duration retention,
+                              @Value("${idempotency.cache.max-size:10000}") int maxSize) {
+        this.repository = repository;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.retention = retention;
+        this.recent = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, StoredResponse> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Executes action unless a request with the same scope and key already succeeded within the
+     * retention window, in which case its response is replayed. A key reused with a different
+     * request body is rejected. Failed actions are not recorded, so they can be retried.
+     */
+    public <T> Result<T> execute(String scope, String key, Object request, Class<T> responseType, Supplier<T> action) {
+        if (key == null || key.isBlank()) {
+            return new Result<>(action.get(), false);
+        }
+
+        String cacheKey = scope + ' ' + key;
+        String requestHash = hash(request);
+
+        StoredResponse cached = findRecent(cacheKey);
+        if (cached != null) {
+            return replay(cached, requestHash, responseType);
+        }
+
+        CompletableFuture<StoredResponse> claim = new CompletableFuture<>();
+        CompletableFuture<StoredResponse> existing = inFlight.putIfAbsent(cacheKey, claim);
+        if (existing != null) {
+            return replay(await(existing), requestHash, responseType);
+        }
+
+        try {
+            Outcome<T> outcome = executeOnce(scope, key, requestHash, responseType, action);
+            remember(cacheKey, outcome.stored());
+            claim.complete(outcome.stored());
+            return outcome.result() != null ? outcome.result() : replay(outcome.stored(), requestHash, responseType);
+        } catch (RuntimeException e) {
+            claim.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(cacheKey, claim);
+        }
+    }
+
+    private <T> Outcome<T> executeOnce(String scope, String key, String requestHash,
+                                       Class<T> responseType, Supplier<T> action) {
+        Optional<StoredResponse> stored = load(scope, key);
+        if (stored.isPresent()) {
+            return new Outcome<>(stored.get(), null);
+        }
+
+        try {
+            return transactionTemplate.execute(status -> {
+                IdempotencyRecord record = new IdempotencyRecord();
+                record.setScope(scope);
+                record.setIdempotencyKey(key);
+                record.setRequestHash(requestHash);
+                // Blocks on a concurrent claim of the same key until that transaction ends
+                repository.saveAndFlush(record);
+
+                T response = action.get();
+                record.setResponseBody(serialize(response));
+                repository.save(record);
+                return new Outcome<>(new StoredResponse(requestHash, record.getResponseBody(), LocalDateTime.now()),
+                        new Result<>(response, false));
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Another instance committed the same key first
+            return new Outcome<>(load(scope, key).orElseThrow(() -> e), null);
+        }
+    }
+
+    private Optional<StoredResponse> load(String scope, String key) {
+        return repository.findByScopeAndIdempotencyKey(scope, key)
+                .filter(record -> {
+                    if (record.getCreatedAt().isAfter(LocalDateTime.now().minus(retention))) {
+                        return true;
+                    }
+                    repository.delete(record);
+                    return false;
+                })
+                .map(record -> new StoredResponse(record.getRequestHash(), record.getResponseBody(), record.getCreatedAt()));
+    }
+
+    private <T> Result<T> replay(StoredResponse stored, String requestHash, Class<T> responseType) {
+        if (!stored.requestHash().equals(requestHash)) {
+            throw new IdempotencyKeyConflictException("Idempotency key was already used for a different request");
+        }
+        try {
+            return new Result<>(objectMapper.readValue(stored.body(), responseType), true);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Stored idempotent response cannot be read", e);
+        }
+    }
+
+    private static StoredResponse await(CompletableFuture<StoredResponse> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private StoredResponse findRecent(String cacheKey) {
+        synchronized (recent) {
+            StoredResponse stored = recent.get(cacheKey);
+            if (stored != null && stored.createdAt().isBefore(LocalDateTime.now().minus(retention))) {
+                recent.remove(cacheKey);
+                return null;
+            }
+            return stored;
+        }
+    }
+
+    private void remember(String cacheKey, StoredResponse stored) {
+        synchronized (recent) {
+            recent.put(cacheKey, stored);
+        }
+    }
+
+    private String hash(Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(objectMapper.writeValueAsBytes(request)));
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException("Cannot hash request", e);
+        }
+    }
+
+    private String serialize(Object response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot store idempotent response", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${idempotency.purge-interval:PT1H}",
+            initialDelayString = "${idempotency.purge-interval:PT1H}")
+    public void purgeExpired() {
+        Integer deleted = transactionTemplate.execute(status ->
+                repository.deleteCreatedBefore(LocalDateTime.now().minus(retention)));
+        log.debug("Purged {} expired idempotency keys", deleted);
+    }
+
+    public record Result<T>(T body, boolean replayed) {
+    }
+
+    private record StoredResponse(String requestHash, String body, LocalDateTime createdAt) {
+    }
+
+    private record Outcome<T>(StoredResponse stored, Result<T> result) {
+    }
+}
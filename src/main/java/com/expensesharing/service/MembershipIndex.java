@@ -0,0 +1,227 @@
+package com.expensesharing.service;
+
+import com.expensesharing.event.GroupMembershipChangedEvent;
+import com.expensesharing.repository.GroupMemberRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Active group memberships held in memory, both as group -> members and user -> groups.
+ * Each side is a bounded LRU loaded per key on a miss, rather than one snapshot of the whole
+ * table, so memory follows the working set. Values are stored as sorted arrays of UUID bit pairs,
+ * 16 bytes per id instead of a UUID object plus a hash slot.
+ * This instance drops the affected keys once a GroupMembershipChangedEvent commits. Changes made
+ * by another instance raise no event here, so entries also expire after cache.membership.ttl,
+ * which bounds how long a removed member can keep access through a stale entry.
+ * Groups without active members are never cached, so probing random group ids costs a query
+ * each time but no memory.
+ */
+@Component
+public class MembershipIndex {
+
+    private final GroupMemberRepository groupMemberRepository;
+    private final Side membersByGroup;
+    private final Side groupsByUser;
+
+    public MembershipIndex(GroupMemberRepository groupMemberRepository,
+                           @Value("${cache.membership.max-size:10000}") int maxSize,
+                           @Value("${cache.membership.ttl:PT30S}") Duration ttl) {
+        this.groupMemberRepository = groupMemberRepository;
+        this.membersByGroup = new Side(maxSize, ttl, this::loadMembers, false);
+        this.groupsByUser = new Side(maxSize, ttl, this::loadGroups, true);
+    }
+
+    public boolean isMember(UUID groupId, UUID userId) {
+        return membersOf(groupId).contains(userId);
+    }
+
+    /**
+     * Active member ids of the group; empty for unknown groups.
+     */
+    public Set<UUID> membersOf(UUID groupId) {
+        return membersByGroup.get(groupId);
+    }
+
+    /**
+     * Ids of the groups the user is an active member of.
+     */
+    public Set<UUID> groupsOf(UUID userId) {
+        return groupsByUser.get(userId);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onMembershipChanged(GroupMembershipChangedEvent event) {
+        membersByGroup.invalidate(event.groupId());
+        groupsByUser.invalidate(event.userId());
+    }
+
+    private Set<UUID> loadMembers(UUID groupId) {
+        return IdSet.of(groupMemberRepository.findActiveUserIdsByGroupId(groupId));
+    }
+
+    private Set<UUID> loadGroups(UUID userId) {
+        return IdSet.of(groupMemberRepository.findActiveGroupIdsByUserId(userId));
+    }
+
+    /**
+     * One direction of the index. A load that started before an invalidation of its key is
+     * returned to its caller but not cached, so it can't put back what the commit just dropped.
+     */
+    private static final class Side {
+        private final Map<UUID, Entry> entries;
+        private final Map<UUID, Long> invalidatedAt;
+        private final long ttlNanos;
+        private final Function<UUID, Set<UUID>> loader;
+        private final boolean cacheEmpty;
+        private long clock;
+
+        Side(int maxSize, Duration ttl, Function<UUID, Set<UUID>> loader, boolean cacheEmpty) {
+            this.ttlNanos = ttl.toNanos();
+            this.loader = loader;
+            this.cacheEmpty = cacheEmpty;
+            this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<UUID, Entry> eldest) {
+                    return size() > maxSize;
+                }
+            };
+            // Only needs to remember invalidations for as long as a load can take, so it shares the bound
+            this.invalidatedAt = new LinkedHashMap<>(16, 0.75f, false) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<UUID, Long> eldest) {
+                    return size() > maxSize;
+                }
+            };
+        }
+
+        Set<UUID> get(UUID key) {
+            long started;
+            synchronized (this) {
+                Entry entry = entries.get(key);
+                if (entry != null) {
+                    if (System.nanoTime() - entry.loadedAt < ttlNanos) {
+                        return entry.value;
+                    }
+                    entries.remove(key);
+                }
+                started = clock;
+            }
+
+            long loadedAt = System.nanoTime();
+            Set<UUID> value = loader.apply(key);
+
+            synchronized (this) {
+                Long invalidated = invalidatedAt.get(key);
+                boolean fresh = invalidated == null || invalidated <= started;
+                if (fresh && (cacheEmpty || !value.isEmpty())) {
+                    entries.put(key, new Entry(value, loadedAt));
+                }
+            }
+            return value;
+        }
+
+        synchronized void invalidate(UUID key) {
+            entries.remove(key);
+            invalidatedAt.remove(key);
+            invalidatedAt.put(key, ++clock);
+        }
+    }
+
+    private record Entry(Set<UUID> value, long loadedAt) {
+    }
+
+    /**
+     * Immutable set of UUIDs held as (most, least significant bits) pairs in one long array,
+     * sorted by those bits as signed longs so contains is a binary search.
+     */
+    static final class IdSet extends AbstractSet<UUID> {
+        private static final IdSet EMPTY = new IdSet(new long[0]);
+        private static final Comparator<UUID> ORDER = Comparator.comparingLong(UUID::getMostSignificantBits)
+                .thenComparingLong(UUID::getLeastSignificantBits);
+
+        private final long[] bits;
+
+        private IdSet(long[] bits) {
+            this.bits = bits;
+        }
+
+        static IdSet of(Collection<UUID> ids) {
+            if (ids.isEmpty()) {
+                return EMPTY;
+            }
+            UUID[] sorted = ids.toArray(new UUID[0]);
+            Arrays.sort(sorted, ORDER);
+            long[] bits = new long[sorted.length * 2];
+            int size = 0;
+            for (UUID id : sorted) {
+                if (size > 0 && bits[2 * size - 2] == id.getMostSignificantBits()
+                        && bits[2 * size - 1] == id.getLeastSignificantBits()) {
+                    continue;
+                }
+                bits[2 * size] = id.getMostSignificantBits();
+                bits[2 * size + 1] = id.getLeastSignificantBits();
+                size++;
+            }
+            return new IdSet(size * 2 == bits.length ? bits : Arrays.copyOf(bits, size * 2));
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof UUID id)) {
+                return false;
+            }
+            long most = id.getMostSignificantBits();
+            long least = id.getLeastSignificantBits();
+            int low = 0;
+            int high = size() - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int cmp = Long.compare(bits[2 * mid], most);
+                if (cmp == 0) {
+                    cmp = Long.compare(bits[2 * mid + 1], least);
+                }
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else if (cmp > 0) {
+                    high = mid - 1;
+                } else {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Iterator<UUID> iterator() {
+            return new Iterator<>() {
+                private int next;
+
+                @Override
+                public boolean hasNext() {
+                    return next < size();
+                }
+
+                @Override
+                public UUID next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    UUID id = new UUID(bits[2 * next], bits[2 * next + 1]);
+                    next++;
+                    return id;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return bits.length / 2;
+        }
+    }
+}
@@ -22,6 +22,7 @@ public class SettlementService {
     private final SettlementRepository settlementRepository;
     private final GroupRepository groupRepository;
     private final UserRepository userRepository;
+    private final BalanceLedger balanceLedger;
 
     public SettlementResponse createSettlement(CreateSettlementRequest request) {
         Group group = groupRepository.findById(request.getGroupId())
@@ -41,6 +42,8 @@ public class SettlementService {
         settlement.setNote(request.getNote());
 
         Settlement savedSettlement = settlementRepository.save(settlement);
+        balanceLedger.recordSettlement(savedSettlement);
+        groupRepository.incrementVersion(group.getId());
 
         // Return DTO instead of entity to avoid circular reference
         return mapToResponse(savedSettlement);
@@ -1,6 +1,7 @@
 package com.expensesharing.service;
 
 import com.expensesharing.dto.request.SplitRequest;
+import com.expensesharing.entity.SplitType;
 import com.expensesharing.exception.InvalidSplitException;
 import org.springframework.stereotype.Service;
 import java.math.BigDecimal;
@@ -10,6 +11,19 @@ import java.util.*;
 @Service
 public class SplitCalculator {
 
+    public Map<UUID, BigDecimal> calculateSplits(SplitType splitType, BigDecimal totalAmount, List<SplitRequest> splits) {
+        return switch (splitType) {
+            case EQUAL -> {
+                List<UUID> participants = splits.stream()
+                        .map(SplitRequest::getUserId)
+                        .toList();
+                yield calculateEqualSplit(totalAmount, participants);
+            }
+            case EXACT -> calculateExactSplit(totalAmount, splits);
+            case PERCENTAGE -> calculatePercentageSplit(totalAmount, splits);
+        };
+    }
+
     public Map<UUID, BigDecimal> calculateEqualSplit(BigDecimal totalAmount, List<UUID> participants) {
         if (participants.isEmpty()) {
             throw new InvalidSplitException("Participants list cannot be empty");
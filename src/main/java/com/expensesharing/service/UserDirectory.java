@@ -0,0 +1,92 @@
+package com.expensesharing.service;
+
+import com.expensesharing.entity.User;
+import com.expensesharing.repository.UserRepository;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Resolves user ids to their public profile fields for DTO mapping.
+ * Misses are loaded in bulk with a single findAllById and kept in a bounded LRU cache.
+ * Nothing changes name, email or phone after a user is created and users are never deleted,
+ * so entries can't go stale; a profile update path would have to evict the user here.
+ */
+@Component
+public class UserDirectory {
+
+    private static final String UNKNOWN = "Unknown";
+
+    private final UserRepository userRepository;
+    private final Map<UUID, UserSummary> cache;
+
+    public UserDirectory(UserRepository userRepository,
+                         @Value("${cache.user-directory.max-size:10000}") int maxSize) {
+        this.userRepository = userRepository;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, UserSummary> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the summaries of all known ids; ids with no matching user are absent from the result.
+     */
+    public Map<UUID, UserSummary> resolve(Collection<UUID> userIds) {
+        Map<UUID, UserSummary> result = new HashMap<>();
+        List<UUID> missing = new ArrayList<>();
+
+        synchronized (cache) {
+            for (UUID userId : new HashSet<>(userIds)) {
+                UserSummary summary = cache.get(userId);
+                if (summary != null) {
+                    result.put(userId, summary);
+                } else if (userId != null) {
+                    missing.add(userId);
+                }
+            }
+        }
+
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        List<UserSummary> loaded = userRepository.findAllById(missing)
+                .stream()
+                .map(UserSummary::of)
+                .toList();
+
+        synchronized (cache) {
+            for (UserSummary summary : loaded) {
+                result.put(summary.getId(), summary);
+                cache.put(summary.getId(), summary);
+            }
+        }
+        return result;
+    }
+
+    public static String nameOf(Map<UUID, UserSummary> resolved, UUID userId) {
+        UserSummary summary = resolved.get(userId);
+        return summary != null ? summary.getName() : UNKNOWN;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class UserSummary {
+        private UUID id;
+        private String name;
+        private String email;
+        private String phone;
+        private LocalDateTime createdAt;
+
+        static UserSummary of(User user) {
+            return new UserSummary(user.getId(), user.getName(), user.getEmail(), user.getPhone(), user.getCreatedAt());
+        }
+    }
+}
@@ -2,11 +2,12 @@ package com.expensesharing.service;
 
 import com.expensesharing.dto.request.CreateUserRequest;
 import com.expensesharing.dto.response.UserResponse;
-import com.expensesharing.entity.Role;
 import com.expensesharing.entity.User;
 import com.expensesharing.exception.ResourceNotFoundException;
 import com.expensesharing.exception.UnauthorizedException;
 import com.expensesharing.repository.UserRepository;
+import com.expensesharing.repository.projection.UserRow;
+import com.expensesharing.security.AuthenticatedUser;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
@@ -36,12 +37,12 @@ public class UserService {
         return mapToResponse(savedUser);
     }
 
+    @Transactional(readOnly = true)
     public UserResponse getUser(UUID userId, Authentication authentication) {
-        User requestingUser = userRepository.findByEmail(authentication.getName())
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        AuthenticatedUser requestingUser = AuthenticatedUser.from(authentication);
 
         // Only allow users to see their own details OR admins to see anyone's details
-        if (!requestingUser.getId().equals(userId) && requestingUser.getRole() != Role.ADMIN) {
+        if (!requestingUser.id().equals(userId) && !requestingUser.isAdmin()) {
             throw new UnauthorizedException("You can only view your own profile");
         }
 
@@ -50,14 +51,24 @@ public class UserService {
         return mapToResponse(user);
     }
 
+    @Transactional(readOnly = true)
     public List<UserResponse> getAllUsers() {
         // This method is now protected by @PreAuthorize("hasRole('ADMIN')") in controller
-        return userRepository.findAll()
-                .stream()
-                .map(this::mapToResponse)
+        return userRepository.findAllRows().stream()
+                .map(UserService::toResponse)
                 .toList();
     }
 
+    private static UserResponse toResponse(UserRow user) {
+        return UserResponse.builder()
+                .id(user.id())
+                .name(user.name())
+                .email(user.email())
+                .phone(user.phone())
+                .createdAt(user.createdAt())
+                .build();
+    }
+
     private UserResponse mapToResponse(User user) {
         return UserResponse.builder()
                 .id(user.getId())
@@ -0,0 +1,53 @@
+-- Tables and columns added since the baseline: the balance ledger and its checkpoints, idempotency
+-- keys, the revoked token denylist, and the version counters of users and groups. Runs on fresh
+-- databases and on ones baselined at V1 alike; IF NOT EXISTS tolerates databases where ddl-auto
+-- already created some of them.
+
+-- Bumped to revoke every token issued to the user so far
+ALTER TABLE users ADD COLUMN IF NOT EXISTS token_version INTEGER NOT NULL DEFAULT 0;
+-- Bumped with every change to the group's expenses, backs the expense list ETag
+ALTER TABLE groups ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+
+-- Running net balance per member; upserted with ON CONFLICT (group_id, user_id)
+CREATE TABLE IF NOT EXISTS group_balances (
+    id         UUID           NOT NULL,
+    group_id   UUID           NOT NULL,
+    user_id    UUID           NOT NULL,
+    net_amount NUMERIC(12, 2) NOT NULL,
+    updated_at TIMESTAMP(6),
+    CONSTRAINT pk_group_balances PRIMARY KEY (id),
+    CONSTRAINT uk_group_balances_group_user UNIQUE (group_id, user_id),
+    CONSTRAINT fk_group_balances_group FOREIGN KEY (group_id) REFERENCES groups (id),
+    CONSTRAINT fk_group_balances_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
+
+CREATE TABLE IF NOT EXISTS balance_checkpoints (
+    id       UUID           NOT NULL,
+    group_id UUID           NOT NULL,
+    user_id  UUID           NOT NULL,
+    amount   NUMERIC(12, 2) NOT NULL,
+    as_of    TIMESTAMP(6)   NOT NULL,
+    CONSTRAINT pk_balance_checkpoints PRIMARY KEY (id),
+    CONSTRAINT fk_balance_checkpoints_group FOREIGN KEY (group_id) REFERENCES groups (id),
+    CONSTRAINT fk_balance_checkpoints_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
+
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+    id              UUID         NOT NULL,
+    scope           VARCHAR(255) NOT NULL,
+    idempotency_key VARCHAR(255) NOT NULL,
+    request_hash    VARCHAR(64)  NOT NULL,
+    response_body   TEXT,
+    created_at      TIMESTAMP(6) NOT NULL,
+    CONSTRAINT pk_idempotency_keys PRIMARY KEY (id),
+    CONSTRAINT uk_idempotency_keys_scope_key UNIQUE (scope, idempotency_key)
+);
+
+-- Inserted with ON CONFLICT (jti) DO NOTHING; rows are purged once the token has expired
+CREATE TABLE IF NOT EXISTS revoked_tokens (
+    jti        UUID         NOT NULL,
+    user_id    UUID         NOT NULL,
+    expires_at TIMESTAMP(6) NOT NULL,
+    revoked_at TIMESTAMP(6) NOT NULL,
+    CONSTRAINT pk_revoked_tokens PRIMARY KEY (jti)
+);
@@ -0,0 +1,81 @@
+-- Baseline schema: the tables ddl-auto created before Flyway owned the schema, and nothing newer.
+-- Databases created by ddl-auto are baselined at this version (spring.flyway.baseline-on-migrate)
+-- and only receive the later migrations, so anything added since belongs in V1_1 or later.
+-- Secondary indexes live in V2.
+
+CREATE TABLE users (
+    id            UUID         NOT NULL,
+    name          VARCHAR(255) NOT NULL,
+    email         VARCHAR(255) NOT NULL,
+    password      VARCHAR(255) NOT NULL,
+    phone         VARCHAR(255),
+    role          VARCHAR(255) NOT NULL CHECK (role IN ('USER', 'ADMIN')),
+    created_at    TIMESTAMP(6) NOT NULL,
+    updated_at    TIMESTAMP(6),
+    CONSTRAINT pk_users PRIMARY KEY (id),
+    CONSTRAINT uk_users_email UNIQUE (email)
+);
+
+CREATE TABLE groups (
+    id          UUID         NOT NULL,
+    name        VARCHAR(255) NOT NULL,
+    description TEXT,
+    created_by  UUID         NOT NULL,
+    created_at  TIMESTAMP(6) NOT NULL,
+    updated_at  TIMESTAMP(6),
+    CONSTRAINT pk_groups PRIMARY KEY (id),
+    CONSTRAINT fk_groups_created_by FOREIGN KEY (created_by) REFERENCES users (id)
+);
+
+CREATE TABLE group_members (
+    id        UUID         NOT NULL,
+    group_id  UUID         NOT NULL,
+    user_id   UUID         NOT NULL,
+    joined_at TIMESTAMP(6) NOT NULL,
+    is_active BOOLEAN      NOT NULL,
+    CONSTRAINT pk_group_members PRIMARY KEY (id),
+    CONSTRAINT uk_group_members_group_user UNIQUE (group_id, user_id),
+    CONSTRAINT fk_group_members_group FOREIGN KEY (group_id) REFERENCES groups (id),
+    CONSTRAINT fk_group_members_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
+
+CREATE TABLE expenses (
+    id           UUID           NOT NULL,
+    group_id     UUID           NOT NULL,
+    description  VARCHAR(255)   NOT NULL,
+    total_amount NUMERIC(10, 2) NOT NULL,
+    paid_by      UUID           NOT NULL,
+    split_type   VARCHAR(255)   NOT NULL CHECK (split_type IN ('EQUAL', 'EXACT', 'PERCENTAGE')),
+    created_at   TIMESTAMP(6)   NOT NULL,
+    updated_at   TIMESTAMP(6),
+    CONSTRAINT pk_expenses PRIMARY KEY (id),
+    CONSTRAINT fk_expenses_group FOREIGN KEY (group_id) REFERENCES groups (id),
+    CONSTRAINT fk_expenses_paid_by FOREIGN KEY (paid_by) REFERENCES users (id)
+);
+
+CREATE TABLE expense_splits (
+    id          UUID           NOT NULL,
+    expense_id  UUID           NOT NULL,
+    user_id     UUID           NOT NULL,
+    amount_owed NUMERIC(10, 2) NOT NULL,
+    percentage  NUMERIC(5, 2),
+    paid        BOOLEAN        NOT NULL,
+    created_at  TIMESTAMP(6)   NOT NULL,
+    CONSTRAINT pk_expense_splits PRIMARY KEY (id),
+    CONSTRAINT fk_expense_splits_expense FOREIGN KEY (expense_id) REFERENCES expenses (id),
+    CONSTRAINT fk_expense_splits_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
+
+CREATE TABLE settlements (
+    id         UUID           NOT NULL,
+    group_id   UUID           NOT NULL,
+    from_user  UUID           NOT NULL,
+    to_user    UUID           NOT NULL,
+    amount     NUMERIC(10, 2) NOT NULL,
+    settled_at TIMESTAMP(6)   NOT NULL,
+    note       TEXT,
+    CONSTRAINT pk_settlements PRIMARY KEY (id),
+    CONSTRAINT fk_settlements_group FOREIGN KEY (group_id) REFERENCES groups (id),
+    CONSTRAINT fk_settlements_from_user FOREIGN KEY (from_user) REFERENCES users (id),
+    CONSTRAINT fk_settlements_to_user FOREIGN KEY (to_user) REFERENCES users (id)
+);
@@ -0,0 +1,79 @@
+-- Secondary indexes, one per repository query shape. Built CONCURRENTLY so a baselined database
+-- keeps serving writes while they build; Flyway runs this script outside a transaction for that.
+-- IF NOT EXISTS makes the script safe to rerun after a failed build (drop the INVALID index first).
+
+-- group_members: membership lookups only ever want active rows
+-- findActiveUserIdsByGroupId, findActiveByGroupIdIn, findByGroupIdAndIsActive(true)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_group_members_group_active
+    ON group_members (group_id) INCLUDE (user_id) WHERE is_active;
+-- findActiveByUserId, findActiveGroupIdsByUserId, GroupRepository.findActiveGroupsByUserId
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_group_members_user_active
+    ON group_members (user_id) INCLUDE (group_id) WHERE is_active;
+
+-- groups: admin listing newest first (findIdsNewestFirst), findByCreatedBy
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_groups_created_at_id
+    ON groups (created_at, id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_groups_created_by
+    ON groups (created_by);
+
+-- expenses: keyset pages and ledger replay (findFirstPageIdsByGroupId, findPageIdsByGroupIdBefore,
+-- findByGroupIdAndCreatedAtAfter, streamByExpenseGroupId, findByExpenseGroupId)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_expenses_group_created_id
+    ON expenses (group_id, created_at, id);
+-- searchIds filtered by payer
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_expenses_group_paid_by_created_id
+    ON expenses (group_id, paid_by, created_at, id);
+-- searchIds filtered by amount range
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_expenses_group_amount
+    ON expenses (group_id, total_amount);
+-- searchIds description prefix: lower(description) LIKE 'prefix%', independent of the collation
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_expenses_group_description_lower
+    ON expenses (group_id, lower(description) text_pattern_ops);
+-- sumBalancesByCounterparty: expenses the user paid for
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_expenses_paid_by
+    ON expenses (paid_by);
+-- findGroupIdsWithExpensesBetween (checkpoint scheduler), answered from the index alone
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_expenses_created_at_group
+    ON expenses (created_at) INCLUDE (group_id);
+
+-- expense_splits: findByExpenseId, findRowsByExpenseIdIn and the split side of every expense join.
+-- Covers the SplitRow projection and the paid filter, so no heap fetch is needed.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_expense_splits_expense_covering
+    ON expense_splits (expense_id) INCLUDE (user_id, amount_owed, percentage, paid);
+-- Superseded by the covering index above
+DROP INDEX CONCURRENTLY IF EXISTS idx_expense_splits_expense;
+-- findByUserId, findByParticipantUserId, search participant EXISTS subquery
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_expense_splits_user_expense
+    ON expense_splits (user_id, expense_id);
+-- findUnpaidByUserId and the unpaid branches of sumBalancesByCounterparty
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_expense_splits_user_unpaid
+    ON expense_splits (user_id) INCLUDE (expense_id, amount_owed) WHERE NOT paid;
+
+-- settlements: findByGroupId, findByGroupIdAndSettledAtAfter
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_settlements_group_settled_at
+    ON settlements (group_id, settled_at);
+-- findByFromUserId / findByToUserId and the settlement branches of sumBalancesByCounterparty
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_settlements_from_user
+    ON settlements (from_user) INCLUDE (to_user, amount);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_settlements_to_user
+    ON settlements (to_user) INCLUDE (from_user, amount);
+-- findGroupIdsWithSettlementsBetween (checkpoint scheduler)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_settlements_settled_at_group
+    ON settlements (settled_at) INCLUDE (group_id);
+
+-- balance_checkpoints: findByGroupIdAndAsOf, findLatestAsOf(groupId), deleteOlderThan
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_balance_checkpoints_group_as_of
+    ON balance_checkpoints (group_id, as_of);
+-- findLatestAsOf() across all groups
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_balance_checkpoints_as_of
+    ON balance_checkpoints (as_of);
+
+-- idempotency_keys: purge job
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_idempotency_keys_created_at
+    ON idempotency_keys (created_at);
+
+-- revoked_tokens: startup load and purge (expires_at), cross-instance sync (revoked_at)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_revoked_tokens_expires_at
+    ON revoked_tokens (expires_at);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_revoked_tokens_revoked_at
+    ON revoked_tokens (revoked_at);
@@ -0,0 +1,24 @@
+-- Builds the ledger of every group that has none yet (groups written before group_balances existed,
+-- or never read since), from the full expense and settlement history. From here on every writer
+-- applies its deltas to group_balances, so neither reads nor writes need to build a ledger lazily.
+
+INSERT INTO group_balances (id, group_id, user_id, net_amount, updated_at)
+SELECT gen_random_uuid(), t.group_id, t.user_id, SUM(t.amount), now()
+FROM (
+    -- Payer is credited the full amount, every participant is debited their share
+    SELECT e.group_id, e.paid_by AS user_id, e.total_amount AS amount
+    FROM expenses e
+    UNION ALL
+    SELECT e.group_id, es.user_id, -es.amount_owed
+    FROM expense_splits es
+    JOIN expenses e ON e.id = es.expense_id
+    UNION ALL
+    -- from_user paid to_user
+    SELECT s.group_id, s.from_user, s.amount
+    FROM settlements s
+    UNION ALL
+    SELECT s.group_id, s.to_user, -s.amount
+    FROM settlements s
+) t
+WHERE NOT EXISTS (SELECT 1 FROM group_balances gb WHERE gb.group_id = t.group_id)
+GROUP BY t.group_id, t.user_id;
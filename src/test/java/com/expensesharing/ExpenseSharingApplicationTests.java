@@ -1,10 +1,9 @@
 package com.expensesharing;
 
+import com.expensesharing.support.PostgresIntegrationTest;
 import org.junit.jupiter.api.Test;
-import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
-class ExpenseSharingApplicationTests {
+class ExpenseSharingApplicationTests extends PostgresIntegrationTest {
 
     @Test
     void contextLoads() {
@@ -0,0 +1,75 @@
+package com.expensesharing.benchmark;
+
+import com.expensesharing.service.BalanceSheet;
+import com.expensesharing.service.BalanceSimplifier;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of settling one group's balances, greedy at 10, 100 and 10k members and exact at the
+ * sizes it is allowed to run at (above balance.simplifier.optimal-max-members it falls back to greedy).
+ * Run with -prof gc to also get the bytes allocated per call; see the readme for the command.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BalanceSimplifierBenchmark {
+
+    private static final BalanceSimplifier SIMPLIFIER = new BalanceSimplifier(16);
+
+    @State(Scope.Benchmark)
+    public static class Greedy {
+        @Param({"10", "100", "10000"})
+        int members;
+
+        BalanceSheet balances;
+
+        @Setup
+        public void setUp() {
+            balances = randomBalances(members);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Optimal {
+        @Param({"10", "16"})
+        int members;
+
+        BalanceSheet balances;
+
+        @Setup
+        public void setUp() {
+            balances = randomBalances(members);
+        }
+    }
+
+    @Benchmark
+    public List<BalanceSimplifier.Transaction> greedy(Greedy state) {
+        return SIMPLIFIER.simplifyBalances(state.balances);
+    }
+
+    @Benchmark
+    public List<BalanceSimplifier.Transaction> optimal(Optimal state) {
+        return SIMPLIFIER.simplifyBalancesOptimal(state.balances);
+    }
+
+    // Non-zero balances up to 1000.00 that sum to zero, the same for every run
+    static BalanceSheet randomBalances(int members) {
+        Random random = new Random(members);
+        BalanceSheet balances = new BalanceSheet(members);
+        long total = 0;
+        for (int i = 0; i < members - 1; i++) {
+            long cents = (random.nextInt(100_000) + 1) * (random.nextBoolean() ? 1L : -1L);
+            balances.add(new UUID(members, i), cents);
+            total += cents;
+        }
+        balances.add(new UUID(members, members - 1), total == 0 ? 0 : -total);
+        return balances;
+    }
+}
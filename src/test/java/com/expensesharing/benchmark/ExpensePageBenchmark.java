@@ -0,0 +1,126 @@
+package com.expensesharing.benchmark;
+
+import com.expensesharing.ExpenseSharingApplication;
+import com.expensesharing.dto.request.CreateExpenseRequest;
+import com.expensesharing.dto.request.SplitRequest;
+import com.expensesharing.dto.response.ExpensePageResponse;
+import com.expensesharing.entity.Expense;
+import com.expensesharing.entity.ExpenseSplit;
+import com.expensesharing.entity.SplitType;
+import com.expensesharing.entity.User;
+import com.expensesharing.repository.ExpenseRepository;
+import com.expensesharing.repository.GroupMemberRepository;
+import com.expensesharing.repository.GroupRepository;
+import com.expensesharing.repository.UserRepository;
+import com.expensesharing.service.ExpenseService;
+import com.expensesharing.support.Fixtures;
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Limit;
+import org.springframework.security.core.Authentication;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One page of a group's expenses, read through the record projections the service uses and
+ * through the managed entities it used before (fetch-joined payer and splits, lazy split users).
+ * gc.alloc.rate.norm under -prof gc is the heap each request allocates, persistence context
+ * snapshots included. Starts the application against a PostgreSQL container, so it needs Docker.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExpensePageBenchmark {
+
+    private static final String ENTITY_PAGE =
+            "SELECT DISTINCT e FROM Expense e JOIN FETCH e.paidBy LEFT JOIN FETCH e.splits WHERE e.id IN :ids";
+
+    @Param({"20", "200"})
+    int pageSize;
+
+    private PostgreSQLContainer<?> postgres;
+    private ConfigurableApplicationContext context;
+    private ExpenseService expenseService;
+    private ExpenseRepository expenseRepository;
+    private EntityManager entityManager;
+    private TransactionTemplate transactionTemplate;
+    private UUID groupId;
+    private Authentication auth;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+        postgres.start();
+        // Arguments, since builder properties are defaults that application.yml would override
+        context = new SpringApplicationBuilder(ExpenseSharingApplication.class).run(
+                "--spring.datasource.url=" + postgres.getJdbcUrl(),
+                "--spring.datasource.username=" + postgres.getUsername(),
+                "--spring.datasource.password=" + postgres.getPassword(),
+                "--spring.jpa.show-sql=false",
+                "--server.port=0",
+                "--logging.level.root=WARN");
+        expenseService = context.getBean(ExpenseService.class);
+        expenseRepository = context.getBean(ExpenseRepository.class);
+        entityManager = context.getBean(EntityManager.class);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+
+        Fixtures fixtures = new Fixtures(context.getBean(UserRepository.class),
+                context.getBean(GroupRepository.class), context.getBean(GroupMemberRepository.class));
+        List<User> members = fixtures.users(4);
+        groupId = fixtures.group(members).getId();
+        auth = Fixtures.authenticationOf(members.get(0));
+        List<SplitRequest> splits = members.stream()
+                .map(user -> SplitRequest.builder().userId(user.getId()).build())
+                .toList();
+        for (int i = 0; i < pageSize; i++) {
+            expenseService.createExpense(CreateExpenseRequest.builder()
+                    .groupId(groupId)
+                    .description("expense " + i)
+                    .totalAmount(new BigDecimal("40.00"))
+                    .paidBy(members.get(i % members.size()).getId())
+                    .splitType(SplitType.EQUAL)
+                    .splits(splits)
+                    .build(), auth);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+        postgres.stop();
+    }
+
+    @Benchmark
+    public ExpensePageResponse projections() {
+        return expenseService.getGroupExpenses(groupId, null, pageSize, auth);
+    }
+
+    @Benchmark
+    public void entities(Blackhole blackhole) {
+        transactionTemplate.executeWithoutResult(status -> {
+            List<UUID> ids = expenseRepository.findFirstPageIdsByGroupId(groupId, Limit.of(pageSize + 1));
+            List<Expense> expenses = entityManager.createQuery(ENTITY_PAGE, Expense.class)
+                    .setParameter("ids", ids)
+                    .getResultList();
+            for (Expense expense : expenses) {
+                blackhole.consume(expense.getDescription());
+                blackhole.consume(expense.getPaidBy().getName());
+                for (ExpenseSplit split : expense.getSplits()) {
+                    blackhole.consume(split.getUser().getName());
+                    blackhole.consume(split.getAmountOwed());
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,136 @@
+package com.expensesharing.config;
+
+import com.expensesharing.support.PostgresIntegrationTest;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationInfo;
+import org.flywaydb.core.api.MigrationState;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * The context only starts if migrate, the drift check and ddl-auto: validate all pass against
+ * an empty database, so reaching these tests already covers that path. The path of a database
+ * created by the former ddl-auto: update is replayed in a schema of its own.
+ */
+class MigrationConfigTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private Flyway flyway;
+
+    @Autowired
+    private FlywayMigrationStrategy migrationStrategy;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void appliesEveryMigration() {
+        assertThat(Arrays.stream(flyway.info().all()).map(MigrationInfo::getState))
+                .isNotEmpty()
+                .allMatch(state -> state == MigrationState.SUCCESS);
+    }
+
+    @Test
+    void createsTheQueryIndexes() {
+        List<String> indexes = jdbcTemplate.queryForList(
+                "SELECT indexname FROM pg_indexes WHERE schemaname = current_schema()", String.class);
+
+        assertThat(indexes).contains(
+                "idx_group_members_group_active",
+                "idx_group_members_user_active",
+                "idx_expenses_group_created_id",
+                "idx_expenses_group_description_lower",
+                "idx_expense_splits_expense_covering",
+                "idx_expense_splits_user_unpaid",
+                "idx_settlements_group_settled_at",
+                "idx_settlements_from_user",
+                "idx_settlements_to_user",
+                "idx_revoked_tokens_expires_at");
+        assertThat(indexes).doesNotContain("idx_expense_splits_expense");
+    }
+
+    @Test
+    void rerunningOnAMigratedDatabaseIsANoOp() {
+        migrationStrategy.migrate(flyway);
+    }
+
+    @Test
+    void refusesMigrationsUnknownToThisBuild() {
+        jdbcTemplate.update("INSERT INTO flyway_schema_history " +
+                "(installed_rank, version, description, type, script, checksum, installed_by, execution_time, success) " +
+                "VALUES (999, '999', 'from a newer build', 'SQL', 'V999__from_a_newer_build.sql', 0, 'test', 0, true)");
+        try {
+            assertThatThrownBy(() -> migrationStrategy.migrate(flyway))
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessageContaining("from a newer build");
+        } finally {
+            jdbcTemplate.update("DELETE FROM flyway_schema_history WHERE installed_rank = 999");
+        }
+    }
+
+    @Test
+    void baselinesADatabaseCreatedByDdlAuto() throws Exception {
+        jdbcTemplate.execute("CREATE SCHEMA legacy");
+        try {
+            try (Connection connection = dataSource.getConnection()) {
+                connection.setSchema("legacy");
+                ScriptUtils.executeSqlScript(connection, new ClassPathResource("db/legacy/ddl_auto_schema.sql"));
+            }
+            Flyway legacy = Flyway.configure()
+                    .configuration(flyway.getConfiguration())
+                    .schemas("legacy")
+                    .defaultSchema("legacy")
+                    .load();
+
+            migrationStrategy.migrate(legacy);
+
+            assertThat(Arrays.stream(legacy.info().applied()).map(migration -> migration.getVersion().getVersion()))
+                    .containsExactly("1", "1.1", "2", "3");
+            assertThat(legacy.info().applied()[0].getState()).isEqualTo(MigrationState.BASELINE);
+            assertThat(columns("legacy"))
+                    .isEqualTo(columns(jdbcTemplate.queryForObject("SELECT current_schema()", String.class)));
+
+            // Alice paid 90.00 for three and Bob settled his share, backfilled by V3
+            Map<String, BigDecimal> balances = new HashMap<>();
+            jdbcTemplate.query(
+                    "SELECT u.name, gb.net_amount FROM legacy.group_balances gb JOIN legacy.users u ON u.id = gb.user_id",
+                    row -> {
+                        balances.put(row.getString(1), row.getBigDecimal(2));
+                    });
+            assertThat(balances).containsOnly(
+                    Map.entry("Alice", new BigDecimal("30.00")),
+                    Map.entry("Bob", new BigDecimal("0.00")),
+                    Map.entry("Carol", new BigDecimal("-30.00")));
+        } finally {
+            jdbcTemplate.execute("DROP SCHEMA legacy CASCADE");
+        }
+    }
+
+    // What ddl-auto: validate checks: every table's columns with their types and nullability
+    private List<String> columns(String schema) {
+        return jdbcTemplate.queryForList("""
+                SELECT table_name || '.' || column_name || ' ' || data_type || coalesce('(' || numeric_precision || ',' || numeric_scale || ')', '')
+                       || ' ' || is_nullable
+                FROM information_schema.columns
+                WHERE table_schema = ? AND table_name <> 'flyway_schema_history'
+                ORDER BY table_name, column_name""", String.class, schema);
+    }
+}
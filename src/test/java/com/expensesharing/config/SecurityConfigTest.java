@@ -0,0 +1,65 @@
+package com.expensesharing.config;
+
+import com.expensesharing.entity.Role;
+import com.expensesharing.entity.User;
+import com.expensesharing.repository.GroupMemberRepository;
+import com.expensesharing.repository.GroupRepository;
+import com.expensesharing.repository.UserRepository;
+import com.expensesharing.security.JwtUtil;
+import com.expensesharing.support.Fixtures;
+import com.expensesharing.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@AutoConfigureMockMvc
+class SecurityConfigTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private JwtUtil jwtUtil;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private GroupRepository groupRepository;
+    @Autowired
+    private GroupMemberRepository groupMemberRepository;
+
+    private User user;
+    private User admin;
+
+    @BeforeEach
+    void setUp() {
+        Fixtures fixtures = new Fixtures(userRepository, groupRepository, groupMemberRepository);
+        user = fixtures.user();
+        admin = fixtures.user();
+        admin.setRole(Role.ADMIN);
+        admin = userRepository.save(admin);
+    }
+
+    @Test
+    void healthIsPublic() throws Exception {
+        mockMvc.perform(get("/actuator/health")).andExpect(status().isOk());
+    }
+
+    @Test
+    void metricsRequireAdmin() throws Exception {
+        mockMvc.perform(get("/actuator/metrics"))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/actuator/metrics/http.server.requests").header(HttpHeaders.AUTHORIZATION, bearer(user)))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/actuator/metrics").header(HttpHeaders.AUTHORIZATION, bearer(admin)))
+                .andExpect(status().isOk());
+    }
+
+    private String bearer(User user) {
+        return "Bearer " + jwtUtil.generateAccessToken(user);
+    }
+}
@@ -0,0 +1,27 @@
+package com.expensesharing.repository;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExpenseRepositoryImplTest {
+
+    @Test
+    void prefixUpperBoundIncrementsTheLastCodePoint() {
+        assertThat(ExpenseRepositoryImpl.prefixUpperBound("expense a")).isEqualTo("expense b");
+        assertThat(ExpenseRepositoryImpl.prefixUpperBound("a%")).isEqualTo("a&");
+        assertThat(ExpenseRepositoryImpl.prefixUpperBound("café")).isEqualTo("cafê");
+        // Past a supplementary code point, not into the low surrogate of its pair
+        assertThat(ExpenseRepositoryImpl.prefixUpperBound("x😀")).isEqualTo("x😁");
+        // The surrogate range is skipped, it holds no code points of its own
+        assertThat(ExpenseRepositoryImpl.prefixUpperBound("x\uD7FF")).isEqualTo("x\uE000");
+    }
+
+    @Test
+    void prefixUpperBoundDropsCodePointsThatCannotGrow() {
+        String max = new String(Character.toChars(Character.MAX_CODE_POINT));
+
+        assertThat(ExpenseRepositoryImpl.prefixUpperBound("a" + max)).isEqualTo("b");
+        assertThat(ExpenseRepositoryImpl.prefixUpperBound(max + max)).isNull();
+    }
+}
@@ -0,0 +1,213 @@
+package com.expensesharing.repository;
+
+import com.expensesharing.dto.request.ExpenseSearchRequest;
+import com.expensesharing.support.PostgresIntegrationTest;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Every combination of search filters, with and without a cursor, must be answered from the
+ * V2 indexes, and each filter on its own from the index created for it. Captures the SQL Hibernate actually sends and explains it as a generic plan,
+ * so the planner can't lean on the literal values, over a seeded and analyzed dataset.
+ * Runs in one transaction that is rolled back, seed data and statistics included.
+ */
+@Import(ExpenseSearchPlanTest.SqlCapture.class)
+class ExpenseSearchPlanTest extends PostgresIntegrationTest {
+
+    private static final int FILTERS = 7;
+    private static final Pattern FROM_EXPENSES = Pattern.compile("\\bfrom\\s+expenses\\b");
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private SqlRecorder sqlRecorder;
+
+    @Test
+    void everyFilterCombinationUsesAnIndex() {
+        inSeededTransaction((groupId, userId) -> {
+            for (int mask = 0; mask < 1 << FILTERS; mask++) {
+                for (boolean paged : new boolean[]{false, true}) {
+                    List<String> plan = plan(groupId, filters(mask, userId), paged);
+
+                    assertThat(plan).as(describe(mask, paged, plan))
+                            .noneMatch(line -> line.contains("Seq Scan on expenses")
+                                    || line.contains("Seq Scan on expense_splits"))
+                            .anyMatch(line -> line.contains("idx_expenses_") || line.contains("idx_expense_splits_"));
+                }
+            }
+        });
+    }
+
+    @Test
+    void eachFilterIsServedByItsOwnIndex() {
+        // The filter bits of one search shape, and the index V2 created for it
+        Map<Integer, String> indexes = new LinkedHashMap<>();
+        indexes.put(0, "idx_expenses_group_created_id");
+        indexes.put(1 | 2, "idx_expenses_group_created_id");
+        indexes.put(4 | 8, "idx_expenses_group_amount");
+        indexes.put(16, "idx_expenses_group_paid_by_created_id");
+        indexes.put(32, "idx_expense_splits_user_expense");
+        indexes.put(64, "idx_expenses_group_description_lower");
+
+        inSeededTransaction((groupId, userId) -> indexes.forEach((mask, index) -> {
+            for (boolean paged : new boolean[]{false, true}) {
+                List<String> plan = plan(groupId, filters(mask, userId), paged);
+
+                assertThat(plan).as(describe(mask, paged, plan))
+                        .anyMatch(line -> line.matches(".*Index (Only )?Scan( Backward)? using " + index + " .*"));
+            }
+        }));
+    }
+
+    private void inSeededTransaction(BiConsumer<UUID, UUID> test) {
+        transactionTemplate.executeWithoutResult(status -> {
+            status.setRollbackOnly();
+            seed();
+            UUID groupId = jdbcTemplate.queryForObject(
+                    "SELECT group_id FROM expenses GROUP BY group_id ORDER BY count(*) DESC LIMIT 1", UUID.class);
+            UUID userId = jdbcTemplate.queryForObject(
+                    "SELECT paid_by FROM expenses WHERE group_id = ? LIMIT 1", UUID.class, groupId);
+            test.accept(groupId, userId);
+        });
+    }
+
+    private List<String> plan(UUID groupId, ExpenseSearchRequest filters, boolean paged) {
+        return explain(capture(groupId, filters, paged));
+    }
+
+    private static String describe(int mask, boolean paged, List<String> plan) {
+        return "filters " + Integer.toBinaryString(mask) + (paged ? " with cursor" : "") + ":\n" + String.join("\n", plan);
+    }
+
+    // 600 users, 200 groups, 20k expenses with three splits each
+    private void seed() {
+        jdbcTemplate.update("""
+                INSERT INTO users (id, name, email, password, role, token_version, created_at)
+                SELECT gen_random_uuid(), 'plan-' || i, 'plan-' || i || '-' || gen_random_uuid() || '@example.com',
+                       'not-a-real-hash', 'USER', 0, now()
+                FROM generate_series(1, 600) i""");
+        jdbcTemplate.update("""
+                INSERT INTO groups (id, name, created_by, created_at, version)
+                SELECT gen_random_uuid(), 'plan-' || i, (SELECT min(id::text)::uuid FROM users), now(), 0
+                FROM generate_series(1, 200) i""");
+        jdbcTemplate.update("""
+                WITH g AS (SELECT array_agg(id) AS ids FROM groups),
+                     u AS (SELECT array_agg(id) AS ids FROM users)
+                INSERT INTO expenses (id, group_id, description, total_amount, paid_by, split_type, created_at)
+                SELECT gen_random_uuid(), g.ids[1 + i % cardinality(g.ids)], 'Expense ' || md5(i::text),
+                       (i % 500) + 0.5, u.ids[1 + (i * 7) % cardinality(u.ids)], 'EQUAL',
+                       now() - i * interval '1 minute'
+                FROM generate_series(1, 20000) i, g, u""");
+        jdbcTemplate.update("""
+                WITH u AS (SELECT array_agg(id) AS ids FROM users)
+                INSERT INTO expense_splits (id, expense_id, user_id, amount_owed, paid, created_at)
+                SELECT gen_random_uuid(), e.id, u.ids[1 + (abs(hashtext(e.id::text)) + k) % cardinality(u.ids)],
+                       1, false, e.created_at
+                FROM expenses e, generate_series(0, 2) k, u""");
+        jdbcTemplate.execute("ANALYZE users, groups, expenses, expense_splits");
+    }
+
+    private static ExpenseSearchRequest filters(int mask, UUID userId) {
+        LocalDateTime now = LocalDateTime.now();
+        return ExpenseSearchRequest.builder()
+                .from((mask & 1) != 0 ? now.minusDays(3) : null)
+                .to((mask & 2) != 0 ? now.minusDays(1) : null)
+                .minAmount((mask & 4) != 0 ? new BigDecimal("10") : null)
+                .maxAmount((mask & 8) != 0 ? new BigDecimal("100") : null)
+                .paidBy((mask & 16) != 0 ? userId : null)
+                .participant((mask & 32) != 0 ? userId : null)
+                .description((mask & 64) != 0 ? "expense a" : null)
+                .build();
+    }
+
+    private String capture(UUID groupId, ExpenseSearchRequest filters, boolean paged) {
+        sqlRecorder.clear();
+        if (paged) {
+            expenseRepository.searchIds(groupId, filters, LocalDateTime.now().minusDays(2), UUID.randomUUID(), 20);
+        } else {
+            expenseRepository.searchIds(groupId, filters, null, null, 20);
+        }
+        return sqlRecorder.statements().stream()
+                .filter(sql -> FROM_EXPENSES.matcher(sql).find())
+                .reduce((first, second) -> second)
+                .orElseThrow();
+    }
+
+    private List<String> explain(String sql) {
+        return jdbcTemplate.queryForList("EXPLAIN (GENERIC_PLAN) " + numberParameters(sql), String.class);
+    }
+
+    // JDBC ? placeholders to the $n form EXPLAIN understands, leaving quoted literals alone
+    private static String numberParameters(String sql) {
+        StringBuilder numbered = new StringBuilder(sql.length() + 16);
+        boolean quoted = false;
+        int parameter = 0;
+        for (char c : sql.toCharArray()) {
+            if (c == '\'') {
+                quoted = !quoted;
+            }
+            if (c == '?' && !quoted) {
+                numbered.append('$').append(++parameter);
+            } else {
+                numbered.append(c);
+            }
+        }
+        return numbered.toString();
+    }
+
+    static class SqlRecorder implements StatementInspector {
+        private final List<String> statements = new ArrayList<>();
+
+        @Override
+        public synchronized String inspect(String sql) {
+            statements.add(sql);
+            return sql;
+        }
+
+        synchronized List<String> statements() {
+            return List.copyOf(statements);
+        }
+
+        synchronized void clear() {
+            statements.clear();
+        }
+    }
+
+    @TestConfiguration(proxyBeanMethods = false)
+    static class SqlCapture {
+
+        @Bean
+        SqlRecorder sqlRecorder() {
+            return new SqlRecorder();
+        }
+
+        @Bean
+        HibernatePropertiesCustomizer statementInspector(SqlRecorder sqlRecorder) {
+            return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, sqlRecorder);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.expensesharing.security;
+
+import com.expensesharing.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LoginThrottleTest {
+
+    private static final String EMAIL = "victim@example.com";
+
+    private final LoginThrottle throttle = new LoginThrottle(new SimpleMeterRegistry(),
+            3, Duration.ofHours(1), 1000, Duration.ofHours(1), 1000);
+
+    @Test
+    void successfulLoginsDoNotSpendTheEmailBucket() {
+        for (int i = 0; i < 10; i++) {
+            throttle.acquire(EMAIL, "10.0.0.1");
+        }
+    }
+
+    @Test
+    void failedLoginsLockTheEmailFromEveryAddress() {
+        for (int i = 0; i < 3; i++) {
+            throttle.acquire(EMAIL, "10.0.0." + i);
+            throttle.recordFailure(EMAIL.toUpperCase());
+        }
+
+        assertThatThrownBy(() -> throttle.acquire(EMAIL, "10.0.0.99"))
+                .isInstanceOf(TooManyRequestsException.class);
+        assertThatCode(() -> throttle.acquire("other@example.com", "10.0.0.99")).doesNotThrowAnyException();
+    }
+
+    @Test
+    void everyAttemptSpendsTheAddressBucket() {
+        LoginThrottle strict = new LoginThrottle(new SimpleMeterRegistry(),
+                3, Duration.ofHours(1), 2, Duration.ofHours(1), 1000);
+        strict.acquire(EMAIL, "10.0.0.1");
+        strict.acquire(EMAIL, "10.0.0.1");
+
+        assertThatThrownBy(() -> strict.acquire(EMAIL, "10.0.0.1"))
+                .isInstanceOf(TooManyRequestsException.class);
+    }
+}
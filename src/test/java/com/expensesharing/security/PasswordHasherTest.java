@@ -0,0 +1,69 @@
+package com.expensesharing.security;
+
+import com.expensesharing.exception.ServiceBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class PasswordHasherTest {
+
+    @Test
+    void timedOutTaskIsDroppedFromTheQueue() throws Exception {
+        CountDownLatch hashing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        PasswordEncoder encoder = mock(PasswordEncoder.class);
+        when(encoder.encode(anyString())).thenReturn("hash");
+        when(encoder.matches(eq("slow"), anyString())).thenAnswer(invocation -> {
+            hashing.countDown();
+            // Like BCrypt, ignores the interrupt sent when its caller gives up
+            while (true) {
+                try {
+                    release.await();
+                    return true;
+                } catch (InterruptedException ignored) {
+                    // keep hashing
+                }
+            }
+        });
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(1);
+        executor.initialize();
+        ExecutorService callers = Executors.newSingleThreadExecutor();
+        try {
+            PasswordHasher hasher = new PasswordHasher(encoder, executor, new SimpleMeterRegistry(),
+                    Duration.ofMillis(200));
+
+            // Occupies the only hashing thread until released
+            Future<Boolean> slow = callers.submit(() -> hasher.matches("slow", "hash"));
+            assertThat(hashing.await(5, TimeUnit.SECONDS)).isTrue();
+
+            // Waits in the queue past the timeout, and must leave it when the caller gives up
+            assertThatThrownBy(() -> hasher.matches("queued", "hash")).isInstanceOf(ServiceBusyException.class);
+            assertThat(executor.getThreadPoolExecutor().getQueue()).isEmpty();
+
+            assertThatThrownBy(() -> slow.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(ServiceBusyException.class);
+            release.countDown();
+            executor.shutdown();
+            assertThat(executor.getThreadPoolExecutor().awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+            verify(encoder).matches(eq("slow"), anyString());
+            verify(encoder, never()).matches(eq("queued"), anyString());
+        } finally {
+            release.countDown();
+            callers.shutdownNow();
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.expensesharing.security;
+
+import com.expensesharing.event.TokenVersionChangedEvent;
+import com.expensesharing.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TokenVersionsTest {
+
+    private static final UUID USER = UUID.randomUUID();
+
+    @Test
+    void loadStartedBeforeRevocationIsNotCached() throws Exception {
+        // Committed token_version of USER, standing in for the users table
+        AtomicInteger committed = new AtomicInteger(0);
+        CountDownLatch readDone = new CountDownLatch(1);
+        CountDownLatch revoked = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        UserRepository repository = mock(UserRepository.class);
+        when(repository.findTokenVersionById(USER)).thenAnswer(invocation -> {
+            int version = committed.get();
+            if (loads.incrementAndGet() == 1) {
+                // The first load read the old row and stalls until the revocation has committed
+                readDone.countDown();
+                revoked.await();
+            }
+            return Optional.of(version);
+        });
+
+        TokenVersions versions = new TokenVersions(repository, mock(ApplicationEventPublisher.class),
+                Duration.ofHours(1), 1000);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<OptionalInt> stale = pool.submit(() -> versions.current(USER));
+            assertThat(readDone.await(5, TimeUnit.SECONDS)).isTrue();
+
+            committed.incrementAndGet();
+            versions.onTokenVersionChanged(new TokenVersionChangedEvent(USER));
+            revoked.countDown();
+
+            assertThat(stale.get(5, TimeUnit.SECONDS)).hasValue(0);
+            assertThat(versions.current(USER)).hasValue(1);
+            assertThat(versions.current(USER)).hasValue(1);
+            assertThat(loads).hasValue(2);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.expensesharing.service;
+
+import com.expensesharing.dto.request.SplitRequest;
+import com.expensesharing.entity.Expense;
+import com.expensesharing.entity.ExpenseSplit;
+import com.expensesharing.entity.Settlement;
+import com.expensesharing.entity.SplitType;
+import com.expensesharing.entity.User;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BalanceSheetTest {
+
+    private final SplitCalculator splitCalculator = new SplitCalculator();
+
+    @Test
+    void matchesTheScaleTwoBigDecimalPath() {
+        List<User> users = users(7);
+        List<Expense> expenses = new ArrayList<>();
+        expenses.add(equalExpense(users.get(0), "100.00", users.subList(0, 3)));
+        expenses.add(equalExpense(users.get(1), "0.01", users.subList(0, 3)));
+        expenses.add(equalExpense(users.get(2), "10.00", users));
+        expenses.add(percentageExpense(users.get(3), "99.99", users.subList(3, 6), "33.33", "33.33", "33.34"));
+        expenses.add(percentageExpense(users.get(4), "0.05", users.subList(4, 7), "12.5", "12.5", "75"));
+
+        Random random = new Random(7);
+        for (int i = 0; i < 500; i++) {
+            User payer = users.get(random.nextInt(users.size()));
+            List<User> participants = new ArrayList<>(users);
+            Collections.shuffle(participants, random);
+            BigDecimal total = BigDecimal.valueOf(1 + random.nextInt(100_000), 2);
+            expenses.add(equalExpense(payer, total.toPlainString(), participants.subList(0, 1 + random.nextInt(users.size()))));
+        }
+        List<Settlement> settlements = List.of(
+                settlement(users.get(1), users.get(0), "33.33"),
+                settlement(users.get(5), users.get(3), "0.01"));
+
+        Map<UUID, BigDecimal> expected = bigDecimalBalances(expenses, settlements);
+        BalanceSheet sheet = new BalanceSheet();
+        for (Expense expense : expenses) {
+            BalanceLedger.addExpense(sheet, expense);
+        }
+        for (Settlement settlement : settlements) {
+            BalanceLedger.addSettlement(sheet, settlement);
+        }
+
+        assertThat(sheet.toMap()).isEqualTo(expected);
+        long total = 0;
+        for (int i = 0; i < sheet.size(); i++) {
+            total += sheet.centsAt(i);
+        }
+        assertThat(total).as("cents lost or gained").isZero();
+    }
+
+    @Test
+    void splitsOfAThirdKeepEveryCent() {
+        List<User> users = users(3);
+        Expense expense = equalExpense(users.get(0), "100.00", users);
+
+        assertThat(expense.getSplits()).extracting(ExpenseSplit::getAmountOwed)
+                .extracting(BalanceSheet::toCents)
+                .containsExactlyInAnyOrder(3333L, 3333L, 3334L);
+        BalanceSheet sheet = new BalanceSheet();
+        BalanceLedger.addExpense(sheet, expense);
+        assertThat(sheet.centsOf(users.get(0).getId()) + sheet.centsOf(users.get(1).getId())
+                + sheet.centsOf(users.get(2).getId())).isZero();
+    }
+
+    @Test
+    void roundsHalfUpLikeANumericColumn() {
+        assertThat(BalanceSheet.toCents(new BigDecimal("33.335"))).isEqualTo(3334);
+        assertThat(BalanceSheet.toCents(new BigDecimal("33.3349"))).isEqualTo(3333);
+        assertThat(BalanceSheet.toCents(new BigDecimal("-33.335"))).isEqualTo(-3334);
+        assertThat(BalanceSheet.toCents(new BigDecimal("100").divide(new BigDecimal("3"), 10, RoundingMode.HALF_UP)))
+                .isEqualTo(3333);
+        assertThat(BalanceSheet.toAmount(-5)).isEqualTo(new BigDecimal("-0.05"));
+    }
+
+    @Test
+    void indexGrowsPastItsInitialCapacity() {
+        BalanceSheet sheet = new BalanceSheet(1);
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            // Sequential ids as well as random ones, so probing has to cope with clustered hashes
+            UUID id = i % 2 == 0 ? UUID.randomUUID() : new UUID(0, i);
+            ids.add(id);
+            sheet.add(id, i);
+        }
+        for (int i = 0; i < ids.size(); i++) {
+            sheet.add(ids.get(i), i);
+        }
+
+        assertThat(sheet.size()).isEqualTo(1_000);
+        assertThat(sheet.userIds()).containsExactlyElementsOf(ids);
+        for (int i = 0; i < ids.size(); i++) {
+            assertThat(sheet.indexOf(ids.get(i))).isEqualTo(i);
+            assertThat(sheet.centsOf(ids.get(i))).isEqualTo(2L * i);
+        }
+        assertThat(sheet.centsOf(UUID.randomUUID())).isZero();
+    }
+
+    // The per-split BigDecimal accumulation the balances were computed with before BalanceSheet
+    private static Map<UUID, BigDecimal> bigDecimalBalances(List<Expense> expenses, List<Settlement> settlements) {
+        Map<UUID, BigDecimal> balances = new HashMap<>();
+        for (Expense expense : expenses) {
+            UUID payerId = expense.getPaidBy().getId();
+            balances.merge(payerId, expense.getTotalAmount(), BigDecimal::add);
+            for (ExpenseSplit split : expense.getSplits()) {
+                balances.merge(split.getUser().getId(), split.getAmountOwed().negate(), BigDecimal::add);
+            }
+        }
+        for (Settlement settlement : settlements) {
+            balances.merge(settlement.getFromUser().getId(), settlement.getAmount(), BigDecimal::add);
+            balances.merge(settlement.getToUser().getId(), settlement.getAmount().negate(), BigDecimal::add);
+        }
+        balances.replaceAll((user, amount) -> amount.setScale(2));
+        return balances;
+    }
+
+    private Expense equalExpense(User payer, String total, List<User> participants) {
+        List<SplitRequest> requests = participants.stream()
+                .map(user -> SplitRequest.builder().userId(user.getId()).build())
+                .toList();
+        return expense(payer, total, SplitType.EQUAL, requests, participants);
+    }
+
+    private Expense percentageExpense(User payer, String total, List<User> participants, String... percentages) {
+        List<SplitRequest> requests = new ArrayList<>();
+        for (int i = 0; i < participants.size(); i++) {
+            requests.add(SplitRequest.builder()
+                    .userId(participants.get(i).getId())
+                    .percentage(new BigDecimal(percentages[i]))
+                    .build());
+        }
+        return expense(payer, total, SplitType.PERCENTAGE, requests, participants);
+    }
+
+    private Expense expense(User payer, String total, SplitType type, List<SplitRequest> requests, List<User> participants) {
+        Expense expense = new Expense();
+        expense.setPaidBy(payer);
+        expense.setTotalAmount(new BigDecimal(total));
+        expense.setSplitType(type);
+        Map<UUID, BigDecimal> amounts = splitCalculator.calculateSplits(type, expense.getTotalAmount(), requests);
+        List<ExpenseSplit> splits = new ArrayList<>();
+        for (User user : participants) {
+            ExpenseSplit split = new ExpenseSplit();
+            split.setExpense(expense);
+            split.setUser(user);
+            split.setAmountOwed(amounts.get(user.getId()));
+            splits.add(split);
+        }
+        expense.setSplits(splits);
+        return expense;
+    }
+
+    private static Settlement settlement(User from, User to, String amount) {
+        Settlement settlement = new Settlement();
+        settlement.setFromUser(from);
+        settlement.setToUser(to);
+        settlement.setAmount(new BigDecimal(amount));
+        return settlement;
+    }
+
+    private static List<User> users(int count) {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            User user = new User();
+            user.setId(UUID.randomUUID());
+            users.add(user);
+        }
+        return users;
+    }
+}
@@ -0,0 +1,102 @@
+package com.expensesharing.service;
+
+import com.expensesharing.dto.response.ExpenseImportResponse;
+import com.expensesharing.entity.Group;
+import com.expensesharing.entity.GroupBalance;
+import com.expensesharing.entity.User;
+import com.expensesharing.repository.ExpenseRepository;
+import com.expensesharing.repository.GroupBalanceRepository;
+import com.expensesharing.repository.GroupMemberRepository;
+import com.expensesharing.repository.GroupRepository;
+import com.expensesharing.repository.UserRepository;
+import com.expensesharing.support.Fixtures;
+import com.expensesharing.support.PostgresIntegrationTest;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Session;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExpenseImportServiceTest extends PostgresIntegrationTest {
+
+    private static final int CHUNK_SIZE = 4;
+    private static final int ROWS = 4 * CHUNK_SIZE + 1;
+
+    @Autowired
+    private ExpenseImportService importService;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private ExpenseRepository expenseRepository;
+    @Autowired
+    private GroupBalanceRepository groupBalanceRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private GroupRepository groupRepository;
+    @Autowired
+    private GroupMemberRepository groupMemberRepository;
+
+    @Test
+    void importsSeveralChunksWithoutKeepingThemInTheRequestPersistenceContext() throws Exception {
+        Fixtures fixtures = new Fixtures(userRepository, groupRepository, groupMemberRepository);
+        List<User> members = fixtures.users(2);
+        Group group = fixtures.group(members);
+
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < ROWS; i++) {
+            body.append(String.format(
+                    "{\"description\":\"row %d\",\"totalAmount\":10.00,\"paidBy\":\"%s\",\"splitType\":\"EQUAL\"," +
+                            "\"splits\":[{\"userId\":\"%s\"},{\"userId\":\"%s\"}]}%n",
+                    i, members.get(0).getId(), members.get(0).getId(), members.get(1).getId()));
+        }
+
+        Object defaultChunkSize = ReflectionTestUtils.getField(importService, "chunkSize");
+        ReflectionTestUtils.setField(importService, "chunkSize", CHUNK_SIZE);
+        // Bind a request-scoped EntityManager the way open-in-view does
+        EntityManager requestEntityManager = entityManagerFactory.createEntityManager();
+        TransactionSynchronizationManager.bindResource(entityManagerFactory, new EntityManagerHolder(requestEntityManager));
+        ExpenseImportResponse response;
+        try {
+            response = importService.importExpenses(group.getId(),
+                    new ByteArrayInputStream(body.toString().getBytes(StandardCharsets.UTF_8)),
+                    false, Fixtures.authenticationOf(members.get(0)));
+
+            assertThat(requestEntityManager.unwrap(Session.class).getStatistics().getEntityCount()).isZero();
+        } finally {
+            TransactionSynchronizationManager.unbindResource(entityManagerFactory);
+            requestEntityManager.close();
+            ReflectionTestUtils.setField(importService, "chunkSize", defaultChunkSize);
+        }
+
+        assertThat(response.getImported()).isEqualTo(ROWS);
+        assertThat(response.getFailed()).isZero();
+        assertThat(response.getRows()).extracting(ExpenseImportResponse.RowResult::getRow)
+                .containsExactlyElementsOf(IntStream.rangeClosed(1, ROWS).boxed().toList());
+        assertThat(expenseRepository.findFirstPageIdsByGroupId(group.getId(),
+                Limit.of(ROWS + 1))).hasSize(ROWS);
+
+        // Payer paid 10.00 per row and owes 5.00 of it, the other member owes 5.00 per row
+        Map<UUID, BigDecimal> balances = new HashMap<>();
+        for (GroupBalance row : groupBalanceRepository.findByGroupId(group.getId())) {
+            balances.put(row.getUser().getId(), row.getNetAmount());
+        }
+        assertThat(balances.get(members.get(0).getId())).isEqualByComparingTo(BigDecimal.valueOf(5L * ROWS));
+        assertThat(balances.get(members.get(1).getId())).isEqualByComparingTo(BigDecimal.valueOf(-5L * ROWS));
+    }
+}
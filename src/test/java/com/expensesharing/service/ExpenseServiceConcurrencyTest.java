@@ -0,0 +1,234 @@
+package com.expensesharing.service;
+
+import com.expensesharing.dto.request.CreateExpenseRequest;
+import com.expensesharing.dto.request.SplitRequest;
+import com.expensesharing.entity.Expense;
+import com.expensesharing.entity.Group;
+import com.expensesharing.entity.GroupBalance;
+import com.expensesharing.entity.SplitType;
+import com.expensesharing.entity.User;
+import com.expensesharing.exception.ResourceNotFoundException;
+import com.expensesharing.repository.ExpenseRepository;
+import com.expensesharing.repository.GroupBalanceRepository;
+import com.expensesharing.repository.GroupMemberRepository;
+import com.expensesharing.repository.GroupRepository;
+import com.expensesharing.repository.UserRepository;
+import com.expensesharing.support.Fixtures;
+import com.expensesharing.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.Authentication;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Writes racing each other must leave group_balances equal to a replay of the expenses that
+ * actually ended up committed.
+ */
+class ExpenseServiceConcurrencyTest extends PostgresIntegrationTest {
+
+    private static final int ROUNDS = 20;
+
+    @Autowired
+    private ExpenseService expenseService;
+    @Autowired
+    private ExpenseRepository expenseRepository;
+    @Autowired
+    private GroupBalanceRepository groupBalanceRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private GroupRepository groupRepository;
+    @Autowired
+    private GroupMemberRepository groupMemberRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private BalanceLedger balanceLedger;
+
+    private List<User> members;
+    private Group group;
+    private Authentication auth;
+
+    @BeforeEach
+    void setUp() {
+        Fixtures fixtures = new Fixtures(userRepository, groupRepository, groupMemberRepository);
+        members = fixtures.users(3);
+        group = fixtures.group(members);
+        auth = Fixtures.authenticationOf(members.get(0));
+    }
+
+    @Test
+    void concurrentEditsLeaveTheLedgerConsistent() throws Exception {
+        UUID expenseId = expenseService.createExpense(request("100.00", members.get(0), members), auth).getId();
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                // Different payers and participants, so a lost update would show in several users' balances
+                CreateExpenseRequest first = request("37.00", members.get(1), members.subList(0, 2));
+                CreateExpenseRequest second = request("251.50", members.get(2), members.subList(1, 3));
+                race(pool,
+                        () -> expenseService.updateExpense(group.getId(), expenseId, first, auth),
+                        () -> expenseService.updateExpense(group.getId(), expenseId, second, auth));
+
+                assertThat(ledger()).isEqualTo(replay());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void editRacingDeleteLeavesTheLedgerConsistent() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                UUID expenseId = expenseService.createExpense(request("80.00", members.get(0), members), auth).getId();
+                CreateExpenseRequest edit = request("12.34", members.get(1), members.subList(1, 3));
+                race(pool,
+                        () -> expenseService.updateExpense(group.getId(), expenseId, edit, auth),
+                        () -> {
+                            expenseService.deleteExpense(group.getId(), expenseId, auth);
+                            return null;
+                        });
+
+                assertThat(expenseRepository.existsById(expenseId)).isFalse();
+                assertThat(ledger()).isEqualTo(replay());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void concurrentFirstExpensesOfANewGroupAreAllCounted() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            CreateExpenseRequest first = request("10.00", members.get(0), members);
+            CreateExpenseRequest second = request("22.00", members.get(1), members);
+            race(pool,
+                    () -> expenseService.createExpense(first, auth),
+                    () -> expenseService.createExpense(second, auth));
+
+            assertThat(replay()).isNotEmpty();
+            assertThat(ledger()).isEqualTo(replay());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void backfillMigrationBuildsTheLedgerFromHistory() throws Exception {
+        expenseService.createExpense(request("45.00", members.get(0), members), auth);
+        expenseService.createExpense(request("7.10", members.get(2), members.subList(1, 3)), auth);
+        Map<UUID, BigDecimal> expected = replay();
+
+        // A group from before the ledger existed: history but no group_balances rows
+        jdbcTemplate.update("DELETE FROM group_balances WHERE group_id = ?", group.getId());
+        String backfill = new ClassPathResource("db/migration/V3__backfill_group_balances.sql")
+                .getContentAsString(StandardCharsets.UTF_8);
+        jdbcTemplate.execute(backfill);
+
+        assertThat(ledger()).isEqualTo(expected);
+    }
+
+    @Test
+    void reconcileRepairsADriftedLedgerFromTheCheckpoint() {
+        expenseService.createExpense(request("60.00", members.get(0), members), auth);
+        balanceLedger.checkpoint(group.getId(), LocalDateTime.now());
+        expenseService.createExpense(request("9.00", members.get(1), members), auth);
+        Map<UUID, BigDecimal> expected = replay();
+
+        assertThat(balanceLedger.reconcile(group.getId())).isFalse();
+
+        // A write that went around the ledger
+        jdbcTemplate.update("UPDATE group_balances SET net_amount = net_amount + 1 WHERE group_id = ? AND user_id = ?",
+                group.getId(), members.get(2).getId());
+        assertThat(balanceLedger.reconcile(group.getId())).isTrue();
+        assertThat(ledger()).isEqualTo(expected);
+    }
+
+    /**
+     * Starts both tasks together; a task that loses to a delete may fail with not-found, anything else is a bug.
+     */
+    private static void race(ExecutorService pool, Callable<?> a, Callable<?> b) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (Callable<?> task : List.of(a, b)) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                try {
+                    return task.call();
+                } catch (ResourceNotFoundException e) {
+                    return null;
+                }
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+    }
+
+    private Map<UUID, BigDecimal> ledger() {
+        Map<UUID, BigDecimal> balances = new HashMap<>();
+        for (GroupBalance row : groupBalanceRepository.findByGroupId(group.getId())) {
+            if (row.getNetAmount().signum() != 0) {
+                balances.put(row.getUser().getId(), row.getNetAmount().setScale(2));
+            }
+        }
+        return balances;
+    }
+
+    private Map<UUID, BigDecimal> replay() {
+        return transactionTemplate.execute(status -> {
+            BalanceSheet sheet = new BalanceSheet();
+            for (Expense expense : expenseRepository.findByGroupIdAndCreatedAtAfter(
+                    group.getId(), LocalDateTime.of(1970, 1, 1, 0, 0))) {
+                BalanceLedger.addExpense(sheet, expense);
+            }
+            Map<UUID, BigDecimal> balances = new HashMap<>();
+            sheet.toMap().forEach((userId, amount) -> {
+                if (amount.signum() != 0) {
+                    balances.put(userId, amount);
+                }
+            });
+            return balances;
+        });
+    }
+
+    private CreateExpenseRequest request(String total, User payer, List<User> participants) {
+        List<SplitRequest> splits = participants.stream()
+                .map(user -> SplitRequest.builder().userId(user.getId()).build())
+                .toList();
+        return CreateExpenseRequest.builder()
+                .groupId(group.getId())
+                .description("dinner")
+                .totalAmount(new BigDecimal(total))
+                .paidBy(payer.getId())
+                .splitType(SplitType.EQUAL)
+                .splits(splits)
+                .build();
+    }
+}
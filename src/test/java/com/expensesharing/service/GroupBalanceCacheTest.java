@@ -0,0 +1,114 @@
+package com.expensesharing.service;
+
+import com.expensesharing.dto.response.SimplifiedBalanceResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GroupBalanceCacheTest {
+
+    private static final UUID GROUP = UUID.randomUUID();
+
+    private final GroupBalanceCache cache = new GroupBalanceCache(new SimpleMeterRegistry(), 1000, Duration.ofHours(1));
+
+    @Test
+    void servesAnEntryOnlyAtTheVersionItWasLoadedAt() {
+        AtomicInteger loads = new AtomicInteger();
+
+        SimplifiedBalanceResponse atOne = cache.get(GROUP, false, 1, () -> balances(loads.incrementAndGet()));
+        assertThat(cache.get(GROUP, false, 1, () -> balances(loads.incrementAndGet()))).isSameAs(atOne);
+
+        // A writer committed version 2 but its after-commit invalidation has not run yet
+        SimplifiedBalanceResponse atTwo = cache.get(GROUP, false, 2, () -> balances(loads.incrementAndGet()));
+        assertThat(atTwo).isNotSameAs(atOne);
+        assertThat(cache.get(GROUP, false, 2, () -> balances(loads.incrementAndGet()))).isSameAs(atTwo);
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void loadStartedBeforeACommitIsNeverServedAfterIt() throws Exception {
+        CountDownLatch readDone = new CountDownLatch(1);
+        CountDownLatch committed = new CountDownLatch(1);
+        SimplifiedBalanceResponse stale = balances(1);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            // Read version 1 and its balances, then stall until version 2 has committed
+            Future<SimplifiedBalanceResponse> slowLoad = pool.submit(() -> cache.get(GROUP, false, 1, () -> {
+                readDone.countDown();
+                await(committed);
+                return stale;
+            }));
+            assertThat(readDone.await(5, TimeUnit.SECONDS)).isTrue();
+
+            cache.invalidate(GROUP);
+            SimplifiedBalanceResponse fresh = cache.get(GROUP, false, 2, () -> balances(2));
+            committed.countDown();
+            assertThat(slowLoad.get(5, TimeUnit.SECONDS)).isSameAs(stale);
+
+            // The late fill of version 1 neither replaced version 2 nor is served to its readers
+            assertThat(cache.get(GROUP, false, 2, () -> balances(3))).isSameAs(fresh);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void lateFillOfAnOldVersionIsNotServedToNewerReaders() throws Exception {
+        CountDownLatch readDone = new CountDownLatch(1);
+        CountDownLatch committed = new CountDownLatch(1);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<SimplifiedBalanceResponse> slowLoad = pool.submit(() -> cache.get(GROUP, false, 1, () -> {
+                readDone.countDown();
+                await(committed);
+                return balances(1);
+            }));
+            assertThat(readDone.await(5, TimeUnit.SECONDS)).isTrue();
+
+            // Version 2 commits and is invalidated before the slow load fills in
+            cache.invalidate(GROUP);
+            committed.countDown();
+            SimplifiedBalanceResponse stale = slowLoad.get(5, TimeUnit.SECONDS);
+
+            SimplifiedBalanceResponse fresh = cache.get(GROUP, false, 2, () -> balances(2));
+            assertThat(fresh).isNotSameAs(stale);
+            assertThat(cache.get(GROUP, false, 2, () -> balances(3))).isSameAs(fresh);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void keepsGreedyAndOptimalApart() {
+        SimplifiedBalanceResponse greedy = cache.get(GROUP, false, 1, () -> balances(1));
+        SimplifiedBalanceResponse optimal = cache.get(GROUP, true, 1, () -> balances(2));
+
+        assertThat(cache.get(GROUP, false, 1, () -> balances(3))).isSameAs(greedy);
+        assertThat(cache.get(GROUP, true, 1, () -> balances(3))).isSameAs(optimal);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static SimplifiedBalanceResponse balances(int load) {
+        return SimplifiedBalanceResponse.builder()
+                .groupId(GROUP)
+                .transactions(List.of(SimplifiedBalanceResponse.Transaction.builder()
+                        .fromUser(new UUID(0, load))
+                        .toUser(GROUP)
+                        .build()))
+                .build();
+    }
+}
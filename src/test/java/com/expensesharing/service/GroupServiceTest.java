@@ -0,0 +1,76 @@
+package com.expensesharing.service;
+
+import com.expensesharing.dto.response.GroupPageResponse;
+import com.expensesharing.dto.response.GroupResponse;
+import com.expensesharing.entity.Role;
+import com.expensesharing.entity.User;
+import com.expensesharing.repository.GroupMemberRepository;
+import com.expensesharing.repository.GroupRepository;
+import com.expensesharing.repository.UserRepository;
+import com.expensesharing.support.Fixtures;
+import com.expensesharing.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GroupServiceTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private GroupService groupService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private GroupRepository groupRepository;
+    @Autowired
+    private GroupMemberRepository groupMemberRepository;
+
+    @Test
+    void adminsPageThroughEveryGroupByCursor() {
+        Fixtures fixtures = new Fixtures(userRepository, groupRepository, groupMemberRepository);
+        User member = fixtures.user();
+        List<UUID> created = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            created.add(fixtures.group(List.of(member)).getId());
+        }
+        User admin = fixtures.user();
+        admin.setRole(Role.ADMIN);
+        admin = userRepository.save(admin);
+
+        List<GroupResponse> listed = new ArrayList<>();
+        String cursor = null;
+        do {
+            GroupPageResponse page = groupService.getUserGroups(cursor, 2, Fixtures.authenticationOf(admin));
+            assertThat(page.getItems()).hasSizeLessThanOrEqualTo(2);
+            listed.addAll(page.getItems());
+            cursor = page.getNext();
+        } while (cursor != null);
+
+        List<UUID> ids = listed.stream().map(GroupResponse::getId).toList();
+        assertThat(ids).doesNotHaveDuplicates().containsAll(created);
+        assertThat(ids).hasSize((int) groupRepository.count());
+        assertThat(listed).extracting(GroupResponse::getCreatedAt)
+                .isSortedAccordingTo(Comparator.reverseOrder());
+    }
+
+    @Test
+    void membersGetTheirGroupsInOnePage() {
+        Fixtures fixtures = new Fixtures(userRepository, groupRepository, groupMemberRepository);
+        User member = fixtures.user();
+        List<UUID> created = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            created.add(fixtures.group(List.of(member)).getId());
+        }
+        fixtures.group(List.of(fixtures.user()));
+
+        GroupPageResponse page = groupService.getUserGroups(null, 1, Fixtures.authenticationOf(member));
+
+        assertThat(page.getItems()).extracting(GroupResponse::getId).containsExactlyInAnyOrderElementsOf(created);
+        assertThat(page.getNext()).isNull();
+    }
+}
@@ -0,0 +1,146 @@
+package com.expensesharing.service;
+
+import com.expensesharing.event.GroupMembershipChangedEvent;
+import com.expensesharing.repository.GroupMemberRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MembershipIndexTest {
+
+    private static final UUID GROUP = UUID.randomUUID();
+
+    @Test
+    void staysConsistentWithCommittedMembershipUnderConcurrentAddRemove() throws Exception {
+        // Committed membership of GROUP, standing in for the group_members table
+        Set<UUID> committed = ConcurrentHashMap.newKeySet();
+        GroupMemberRepository repository = mock(GroupMemberRepository.class);
+        when(repository.findActiveUserIdsByGroupId(any())).thenAnswer(invocation -> {
+            Set<UUID> snapshot = new HashSet<>(committed);
+            Thread.yield();
+            return snapshot;
+        });
+        when(repository.findActiveGroupIdsByUserId(any())).thenAnswer(invocation -> {
+            boolean member = committed.contains(invocation.<UUID>getArgument(0));
+            Thread.yield();
+            return member ? Set.of(GROUP) : Set.of();
+        });
+
+        MembershipIndex index = new MembershipIndex(repository, 1000, Duration.ofHours(1));
+        List<UUID> users = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            users.add(UUID.randomUUID());
+        }
+
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long seed = t;
+            tasks.add(executor.submit(() -> {
+                Random random = new Random(seed);
+                start.await();
+                for (int i = 0; i < 5_000; i++) {
+                    UUID user = users.get(random.nextInt(users.size()));
+                    switch (random.nextInt(5)) {
+                        case 0, 1 -> {
+                            // Commit first, then the after-commit event, as GroupService does
+                            boolean active = random.nextBoolean();
+                            if (active) {
+                                committed.add(user);
+                            } else {
+                                committed.remove(user);
+                            }
+                            index.onMembershipChanged(new GroupMembershipChangedEvent(GROUP, user, active));
+                        }
+                        case 2 -> index.isMember(GROUP, user);
+                        case 3 -> index.groupsOf(user);
+                        default -> index.membersOf(GROUP);
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> task : tasks) {
+            task.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertThat(index.membersOf(GROUP)).isEqualTo(committed);
+        for (UUID user : users) {
+            assertThat(index.isMember(GROUP, user)).isEqualTo(committed.contains(user));
+            assertThat(index.groupsOf(user).contains(GROUP)).isEqualTo(committed.contains(user));
+        }
+    }
+
+    @Test
+    void doesNotCacheGroupsWithoutMembers() {
+        GroupMemberRepository repository = mock(GroupMemberRepository.class);
+        when(repository.findActiveUserIdsByGroupId(any())).thenReturn(Set.of());
+        MembershipIndex index = new MembershipIndex(repository, 1000, Duration.ofHours(1));
+
+        UUID probed = UUID.randomUUID();
+        index.membersOf(probed);
+        index.membersOf(probed);
+
+        verify(repository, times(2)).findActiveUserIdsByGroupId(probed);
+    }
+
+    @Test
+    void reloadsEntriesOlderThanTheTtl() {
+        // Stands in for a change committed on another instance, which sends no event here
+        UUID user = UUID.randomUUID();
+        Set<UUID> committed = ConcurrentHashMap.newKeySet();
+        committed.add(user);
+        GroupMemberRepository repository = mock(GroupMemberRepository.class);
+        when(repository.findActiveUserIdsByGroupId(any())).thenAnswer(invocation -> Set.copyOf(committed));
+
+        MembershipIndex cached = new MembershipIndex(repository, 1000, Duration.ofHours(1));
+        MembershipIndex expiring = new MembershipIndex(repository, 1000, Duration.ZERO);
+        assertThat(cached.isMember(GROUP, user)).isTrue();
+        assertThat(expiring.isMember(GROUP, user)).isTrue();
+
+        committed.remove(user);
+
+        assertThat(cached.isMember(GROUP, user)).isTrue();
+        assertThat(expiring.isMember(GROUP, user)).isFalse();
+    }
+
+    @Test
+    void idSetMatchesAHashSet() {
+        Random random = new Random(3);
+        for (int run = 0; run < 200; run++) {
+            List<UUID> ids = new ArrayList<>();
+            for (int i = random.nextInt(50); i > 0; i--) {
+                // Sign bits both ways, and repeats, which the set must collapse
+                UUID id = new UUID(random.nextLong(), random.nextLong());
+                ids.add(id);
+                if (random.nextInt(4) == 0) {
+                    ids.add(id);
+                }
+            }
+            Set<UUID> expected = new HashSet<>(ids);
+
+            Set<UUID> idSet = MembershipIndex.IdSet.of(ids);
+
+            assertThat(idSet).hasSameSizeAs(expected).containsExactlyInAnyOrderElementsOf(expected);
+            assertThat(idSet).isEqualTo(expected);
+            for (UUID id : ids) {
+                assertThat(idSet.contains(id)).isTrue();
+                assertThat(idSet.contains(new UUID(id.getMostSignificantBits(), ~id.getLeastSignificantBits()))).isFalse();
+            }
+            assertThat(idSet.contains("not a uuid")).isFalse();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.expensesharing.support;
+
+import com.expensesharing.entity.Group;
+import com.expensesharing.entity.GroupMember;
+import com.expensesharing.entity.Role;
+import com.expensesharing.entity.User;
+import com.expensesharing.repository.GroupMemberRepository;
+import com.expensesharing.repository.GroupRepository;
+import com.expensesharing.repository.UserRepository;
+import com.expensesharing.security.AuthenticatedUser;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Inserts users and groups straight through the repositories, for tests that exercise the services on top.
+ */
+@RequiredArgsConstructor
+public class Fixtures {
+
+    private final UserRepository userRepository;
+    private final GroupRepository groupRepository;
+    private final GroupMemberRepository groupMemberRepository;
+
+    public User user() {
+        User user = new User();
+        String name = "user-" + UUID.randomUUID();
+        user.setName(name);
+        user.setEmail(name + "@example.com");
+        user.setPassword("not-a-real-hash");
+        user.setRole(Role.USER);
+        return userRepository.save(user);
+    }
+
+    public List<User> users(int count) {
+        List<User> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            users.add(user());
+        }
+        return users;
+    }
+
+    /**
+     * A group created by the first member, with every given user as an active member.
+     */
+    public Group group(List<User> members) {
+        Group group = new Group();
+        group.setName("group-" + UUID.randomUUID());
+        group.setCreatedBy(members.get(0));
+        group = groupRepository.save(group);
+
+        for (User member : members) {
+            GroupMember membership = new GroupMember();
+            membership.setGroup(group);
+            membership.setUser(member);
+            membership.setIsActive(true);
+            groupMemberRepository.save(membership);
+        }
+        return group;
+    }
+
+    public static Authentication authenticationOf(User user) {
+        AuthenticatedUser principal = new AuthenticatedUser(user.getId(), user.getEmail(), user.getRole());
+        return new UsernamePasswordAuthenticationToken(principal, null, List.of());
+    }
+}
@@ -0,0 +1,15 @@
+package com.expensesharing.support;
+
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Base for tests that need the real schema: the full application starts against PostgreSQL,
+ * running the Flyway migrations, the drift check and ddl-auto: validate. Skipped without Docker.
+ */
+@SpringBootTest
+@Import(PostgresTestConfiguration.class)
+@Testcontainers(disabledWithoutDocker = true)
+public abstract class PostgresIntegrationTest {
+}
@@ -0,0 +1,39 @@
+-- The schema as spring.jpa.hibernate.ddl-auto: update created it before Flyway owned the schema,
+-- with Hibernate's own constraint names, plus one group's worth of history to backfill.
+
+create table users (created_at timestamp(6) not null, updated_at timestamp(6), id uuid not null, email varchar(255) not null, name varchar(255) not null, password varchar(255) not null, phone varchar(255), role varchar(255) not null check (role in ('USER','ADMIN')), primary key (id));
+create table groups (created_at timestamp(6) not null, updated_at timestamp(6), created_by uuid not null, id uuid not null, name varchar(255) not null, description TEXT, primary key (id));
+create table group_members (is_active boolean not null, joined_at timestamp(6) not null, group_id uuid not null, id uuid not null, user_id uuid not null, primary key (id));
+create table expenses (total_amount numeric(10,2) not null, created_at timestamp(6) not null, updated_at timestamp(6), group_id uuid not null, id uuid not null, paid_by uuid not null, description varchar(255) not null, split_type varchar(255) not null check (split_type in ('EQUAL','EXACT','PERCENTAGE')), primary key (id));
+create table expense_splits (amount_owed numeric(10,2) not null, paid boolean not null, percentage numeric(5,2), created_at timestamp(6) not null, expense_id uuid not null, id uuid not null, user_id uuid not null, primary key (id));
+create table settlements (amount numeric(10,2) not null, settled_at timestamp(6) not null, from_user uuid not null, group_id uuid not null, id uuid not null, to_user uuid not null, note TEXT, primary key (id));
+alter table if exists users add constraint UK6dotkott2kjsp8vw4d0m25fb7 unique (email);
+alter table if exists group_members add constraint UKnmv4ywmrba9ufv0vu6l7bd8o7 unique (group_id, user_id);
+alter table if exists groups add constraint FKb6ivxskqd1sw9ff0qspk5o6tv foreign key (created_by) references users;
+alter table if exists group_members add constraint FKmbysmcnqhu7wgv4ii3cf5xmkp foreign key (group_id) references groups;
+alter table if exists group_members add constraint FKnr9qg33qt2ovmv29g4vc3gtdx foreign key (user_id) references users;
+alter table if exists expenses add constraint FK5y6xlhfmnmdk4r2n4jyxd0x3g foreign key (group_id) references groups;
+alter table if exists expenses add constraint FKq9tdgvmnnpvphc9f8x7bd4xxh foreign key (paid_by) references users;
+alter table if exists expense_splits add constraint FKs0c8o2mr2yb0ilqu2ngdn4rff foreign key (expense_id) references expenses;
+alter table if exists expense_splits add constraint FK4hwb0h0ug2ld8v6vd6u6egp2a foreign key (user_id) references users;
+alter table if exists settlements add constraint FKe2x6jlvd6g2w1yfjkqd8wu2lc foreign key (group_id) references groups;
+alter table if exists settlements add constraint FKmwrkyy6a2m5ttj7jgc4k5n0jv foreign key (from_user) references users;
+alter table if exists settlements add constraint FK9lfb6ff4hpqmi7w0m2ul2ai7o foreign key (to_user) references users;
+
+-- Alice paid 90.00 split three ways, then Bob settled his 30.00
+insert into users (id, name, email, password, role, created_at) values
+    ('00000000-0000-0000-0000-00000000000a', 'Alice', 'alice@example.com', 'not-a-real-hash', 'USER', now()),
+    ('00000000-0000-0000-0000-00000000000b', 'Bob', 'bob@example.com', 'not-a-real-hash', 'USER', now()),
+    ('00000000-0000-0000-0000-00000000000c', 'Carol', 'carol@example.com', 'not-a-real-hash', 'USER', now());
+insert into groups (id, name, created_by, created_at) values
+    ('00000000-0000-0000-0000-0000000000f0', 'Trip', '00000000-0000-0000-0000-00000000000a', now());
+insert into group_members (id, group_id, user_id, joined_at, is_active)
+select gen_random_uuid(), '00000000-0000-0000-0000-0000000000f0', id, now(), true from users;
+insert into expenses (id, group_id, description, total_amount, paid_by, split_type, created_at) values
+    ('00000000-0000-0000-0000-0000000000e0', '00000000-0000-0000-0000-0000000000f0', 'Dinner', 90.00,
+     '00000000-0000-0000-0000-00000000000a', 'EQUAL', now());
+insert into expense_splits (id, expense_id, user_id, amount_owed, paid, created_at)
+select gen_random_uuid(), '00000000-0000-0000-0000-0000000000e0', id, 30.00, false, now() from users;
+insert into settlements (id, group_id, from_user, to_user, amount, settled_at) values
+    (gen_random_uuid(), '00000000-0000-0000-0000-0000000000f0', '00000000-0000-0000-0000-00000000000b',
+     '00000000-0000-0000-0000-00000000000a', 30.00, now());